@@ -0,0 +1,143 @@
+package com.budget.backend.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+// Small LRU cache with a per-entry expiry and a hard size limit.
+public class BoundedTtlCache<K, V> {
+    
+    private static final int STRIPES = 256;
+    
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    
+    // Bumped on every invalidation (per stripe of keys) so a load that raced with one is not cached
+    private final long[] generations = new long[STRIPES];
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    
+    public BoundedTtlCache(int maxSize, Duration ttl) {
+        this(maxSize, ttl, System::currentTimeMillis);
+    }
+    
+    BoundedTtlCache(int maxSize, Duration ttl, LongSupplier clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        // Access order so the eldest entry is always the least recently used one
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+    
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (entry.expiresAt <= clock.getAsLong()) {
+            entries.remove(key);
+            evictions.incrementAndGet();
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value;
+    }
+    
+    public V getOrLoad(K key, Function<K, V> loader) {
+        V value;
+        long generation;
+        synchronized (this) {
+            value = get(key);
+            generation = generations[stripe(key)];
+        }
+        if (value == null) {
+            // Load outside the lock so a slow loader doesn't block other keys
+            value = loader.apply(key);
+            if (value != null) {
+                synchronized (this) {
+                    if (generations[stripe(key)] == generation) {
+                        put(key, value);
+                    }
+                }
+            }
+        }
+        return value;
+    }
+    
+    public void put(K key, V value) {
+        put(key, value, Long.MAX_VALUE);
+    }
+    
+    // Stores the value until the earlier of expiresAtMillis and the cache TTL
+    public synchronized void put(K key, V value, long expiresAtMillis) {
+        long now = clock.getAsLong();
+        long expiresAt = Math.min(expiresAtMillis, now + ttlMillis);
+        if (expiresAt <= now) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, expiresAt));
+        
+        if (entries.size() > maxSize) {
+            purgeExpired(now);
+        }
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+    
+    public synchronized void invalidate(K key) {
+        generations[stripe(key)]++;
+        if (entries.remove(key) != null) {
+            evictions.incrementAndGet();
+        }
+    }
+    
+    public synchronized void invalidateAll() {
+        for (int i = 0; i < STRIPES; i++) {
+            generations[i]++;
+        }
+        evictions.addAndGet(entries.size());
+        entries.clear();
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    public CacheStats stats() {
+        return new CacheStats(hits.get(), misses.get(), evictions.get(), size());
+    }
+    
+    private void purgeExpired(long now) {
+        Iterator<Entry<V>> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().expiresAt <= now) {
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+    
+    private static int stripe(Object key) {
+        return Math.floorMod(key.hashCode(), STRIPES);
+    }
+    
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
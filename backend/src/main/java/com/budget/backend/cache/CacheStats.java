@@ -0,0 +1,4 @@
+package com.budget.backend.cache;
+
+public record CacheStats(long hits, long misses, long evictions, int size) {
+}
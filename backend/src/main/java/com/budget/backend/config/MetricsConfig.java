@@ -0,0 +1,48 @@
+package com.budget.backend.config;
+
+import com.budget.backend.cache.CacheStats;
+import com.budget.backend.security.JwtTokenProvider;
+import com.budget.backend.security.PrincipalCache;
+import com.budget.backend.service.DashboardCache;
+import com.budget.backend.service.UploadFileResolver;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.Function;
+
+// Publishes the in-process caches under the same meter names Micrometer uses for Caffeine and friends
+// (cache.gets, cache.evictions, cache.size), tagged with the cache name
+@Configuration
+public class MetricsConfig {
+    
+    @Bean
+    public MeterBinder cacheMetrics(PrincipalCache principalCache, JwtTokenProvider tokenProvider,
+                                    DashboardCache dashboardCache, UploadFileResolver uploadFileResolver) {
+        return registry -> {
+            bind(registry, "principals", principalCache, PrincipalCache::stats);
+            bind(registry, "verified-tokens", tokenProvider, JwtTokenProvider::verifiedTokenStats);
+            bind(registry, "dashboards", dashboardCache, DashboardCache::stats);
+            bind(registry, "upload-metadata", uploadFileResolver, UploadFileResolver::stats);
+        };
+    }
+    
+    // The owner is a singleton bean, so the meters' weak reference to it never clears
+    private static <T> void bind(MeterRegistry registry, String cache, T owner, Function<T, CacheStats> stats) {
+        FunctionCounter.builder("cache.gets", owner, o -> stats.apply(o).hits())
+                .tags("cache", cache, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", owner, o -> stats.apply(o).misses())
+                .tags("cache", cache, "result", "miss")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", owner, o -> stats.apply(o).evictions())
+                .tag("cache", cache)
+                .register(registry);
+        Gauge.builder("cache.size", owner, o -> stats.apply(o).size())
+                .tag("cache", cache)
+                .register(registry);
+    }
+}
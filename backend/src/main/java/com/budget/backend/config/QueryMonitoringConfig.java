@@ -0,0 +1,74 @@
+package com.budget.backend.config;
+
+import com.budget.backend.monitoring.CorrelationIdFilter;
+import com.budget.backend.monitoring.QueryBudgetInterceptor;
+import com.budget.backend.monitoring.QueryCountFilter;
+import com.budget.backend.monitoring.QueryMonitor;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class QueryMonitoringConfig implements WebMvcConfigurer {
+    
+    private static final String MAIN_DATA_SOURCE = "dataSource";
+    
+    // Wraps only the DataSource JPA uses, whether that is Spring Boot's pool or the replica router,
+    // so each statement is seen once
+    @Bean
+    public static BeanPostProcessor queryMonitoringDataSourcePostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!MAIN_DATA_SOURCE.equals(beanName) || !(bean instanceof DataSource dataSource)
+                        || bean instanceof ProxyDataSource) {
+                    return bean;
+                }
+                QueryMonitor monitor = new QueryMonitor(
+                        environment.getProperty("app.sql.slow-query-ms", Long.class, 500L),
+                        environment.getProperty("app.sql.n-plus-one-threshold", Integer.class, 5),
+                        environment.getProperty("app.sql.log-sample-rate", Double.class, 0.0),
+                        environment.getProperty("app.sql.log-parameters", Boolean.class, false));
+                return ProxyDataSourceBuilder.create(dataSource)
+                        .name(MAIN_DATA_SOURCE)
+                        .listener(monitor)
+                        .build();
+            }
+        };
+    }
+    
+    @Bean
+    public FilterRegistrationBean<CorrelationIdFilter> correlationIdFilter() {
+        FilterRegistrationBean<CorrelationIdFilter> registration = new FilterRegistrationBean<>(new CorrelationIdFilter());
+        // First, so everything logged for the request (slow queries included) carries the id
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+    
+    @Bean
+    public FilterRegistrationBean<QueryCountFilter> queryCountFilter(
+            MeterRegistry meterRegistry,
+            @Value("${app.sql.query-budget.strict:false}") boolean strictBudgets) {
+        FilterRegistrationBean<QueryCountFilter> registration =
+                new FilterRegistrationBean<>(new QueryCountFilter(meterRegistry, strictBudgets));
+        // Ahead of Spring Security so the JWT filter's principal lookup is counted too
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+    
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new QueryBudgetInterceptor());
+    }
+}
@@ -0,0 +1,177 @@
+package com.budget.backend.config;
+
+import com.budget.backend.cache.BoundedTtlCache;
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Hands out replica connections inside read-only transactions and primary connections everywhere else.
+// Must sit behind a LazyConnectionDataSourceProxy: the transaction's read-only flag is only known
+// after the transaction manager has asked for a connection, so the real one has to be fetched late.
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements Closeable {
+    
+    private static final Logger log = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+    
+    private static final int RECENT_WRITERS_SIZE = 10000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    
+    private static final ThreadLocal<Boolean> PRIMARY_READS = new ThreadLocal<>();
+    
+    private final HikariDataSource primary;
+    private final List<Replica> replicas;
+    private final Supplier<Long> currentUserId;
+    private final AtomicInteger next = new AtomicInteger();
+    
+    // Users who ran a write transaction recently; their reads stay on the primary until the window
+    // passes so they see their own changes despite replication lag
+    private final BoundedTtlCache<Long, Boolean> recentWriters;
+    
+    private final ScheduledExecutorService healthChecks;
+    
+    public ReadWriteRoutingDataSource(HikariDataSource primary, List<HikariDataSource> replicas,
+                                      Supplier<Long> currentUserId, Duration readYourWritesWindow,
+                                      Duration healthCheckInterval) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.currentUserId = currentUserId;
+        this.recentWriters = new BoundedTtlCache<>(RECENT_WRITERS_SIZE, readYourWritesWindow);
+        
+        this.healthChecks = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = healthCheckInterval.toMillis();
+        healthChecks.scheduleWithFixedDelay(this::checkReplicas, 0, interval, TimeUnit.MILLISECONDS);
+    }
+    
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                pinAfterCommit();
+            }
+            return primary.getConnection();
+        }
+        
+        Long userId = currentUserId.get();
+        if (PRIMARY_READS.get() != null || (userId != null && recentWriters.get(userId) != null)) {
+            return primary.getConnection();
+        }
+        
+        // A replica that fails is out of rotation until the next health check sees it answering again
+        for (Replica replica = nextHealthyReplica(); replica != null; replica = nextHealthyReplica()) {
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException e) {
+                markDown(replica, e);
+            }
+        }
+        return primary.getConnection();
+    }
+    
+    // Runs reads that must not miss a recent commit on the primary, even inside a read-only transaction: results
+    // that are cached afterwards, for one. The connection is only fetched at the first statement (see above),
+    // so the reads have to be the transaction's first. Without replicas this simply runs them.
+    public static <T> T onPrimary(Supplier<T> reads) {
+        Boolean outer = PRIMARY_READS.get();
+        PRIMARY_READS.set(Boolean.TRUE);
+        try {
+            return reads.get();
+        } finally {
+            if (outer == null) {
+                PRIMARY_READS.remove();
+            }
+        }
+    }
+    
+    // Credentials are configured per pool (Hikari can't switch them per call), so the ones given here are
+    // ignored and the connection is routed like any other
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+    
+    @Override
+    public void close() {
+        healthChecks.shutdownNow();
+        replicas.forEach(r -> r.dataSource.close());
+    }
+    
+    // The window starts when the write commits, not when it starts, so a write transaction that runs longer
+    // than the window (an import chunk, an account deletion) still pins the user's next reads
+    private void pinAfterCommit() {
+        Long userId = currentUserId.get();
+        if (userId == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWriters.put(userId, Boolean.TRUE);
+            }
+        });
+    }
+    
+    // Round-robin over the replicas currently answering, or null when none are
+    private Replica nextHealthyReplica() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+    
+    private void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (!connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    throw new SQLException("Connection is not valid");
+                }
+                if (!replica.healthy) {
+                    log.info("Replica {} is back in rotation", replica.dataSource.getPoolName());
+                    replica.healthy = true;
+                }
+            } catch (SQLException | RuntimeException e) {
+                markDown(replica, e);
+            }
+        }
+    }
+    
+    private void markDown(Replica replica, Exception cause) {
+        if (replica.healthy) {
+            log.warn("Replica {} taken out of rotation, reads fall back to the primary: {}",
+                    replica.dataSource.getPoolName(), cause.getMessage());
+            replica.healthy = false;
+        }
+    }
+    
+    private static class Replica {
+        
+        private final HikariDataSource dataSource;
+        
+        private volatile boolean healthy = true;
+        
+        private Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -1,18 +1,22 @@
 package com.budget.backend.controller;
 
 
+import com.budget.backend.dto.BatchResult;
+import com.budget.backend.dto.ExpensePatchRequest;
 import com.budget.backend.dto.ExpenseRequest;
+import com.budget.backend.dto.ExpenseResponse;
+import com.budget.backend.dto.PageResponse;
+import com.budget.backend.dto.TransactionFilter;
 import com.budget.backend.entity.Expense;
+import com.budget.backend.monitoring.QueryBudget;
+import com.budget.backend.security.AuthenticatedUser;
 import com.budget.backend.service.ExpenseService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -23,41 +27,69 @@ public class ExpenseController {
     private ExpenseService expenseService;
     
     @PostMapping
-    public ResponseEntity<Expense> createExpense(@AuthenticationPrincipal UserDetails userDetails,
+    @QueryBudget(5)
+    public ResponseEntity<Expense> createExpense(@AuthenticationPrincipal AuthenticatedUser principal,
                                                    @Valid @RequestBody ExpenseRequest request) {
-        Expense expense = expenseService.createExpense(userDetails.getUsername(), request);
+        Expense expense = expenseService.createExpense(principal.getId(), request);
         return ResponseEntity.ok(expense);
     }
     
     @GetMapping
-    public ResponseEntity<List<Expense>> getAllExpenses(@AuthenticationPrincipal UserDetails userDetails,
-       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
-      @RequestParam(required = false) String category)
-      {
-        List<Expense> expenses = expenseService.getFilteredExpenses(userDetails.getUsername(), startDate, endDate, category);
+    @QueryBudget(3)
+    public ResponseEntity<?> getAllExpenses(@AuthenticationPrincipal AuthenticatedUser principal,
+                                            TransactionFilter filter,
+                                            @RequestParam(required = false) Integer limit,
+                                            @RequestParam(required = false) String cursor) {
+        // Paged when the client asks for it; the plain list stays for older clients
+        if (limit != null || cursor != null) {
+            PageResponse<ExpenseResponse> page = expenseService.getExpensePage(principal.getId(), filter, cursor, limit);
+            return ResponseEntity.ok(page);
+        }
+        
+        List<ExpenseResponse> expenses = expenseService.getFilteredExpenses(principal.getId(), filter);
         return ResponseEntity.ok(expenses);
     }
     
+    // Batch endpoints take a JSON array (at most 1000 items) and report a result per item
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResult> createExpenses(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                 @RequestBody List<ExpenseRequest> requests) {
+        return ResponseEntity.ok(expenseService.createExpenses(principal.getId(), requests));
+    }
+    
+    @PatchMapping("/batch")
+    public ResponseEntity<BatchResult> updateExpenses(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                 @RequestBody List<ExpensePatchRequest> patches) {
+        return ResponseEntity.ok(expenseService.updateExpenses(principal.getId(), patches));
+    }
+    
+    @DeleteMapping("/batch")
+    public ResponseEntity<BatchResult> deleteExpenses(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                 @RequestBody List<Long> ids) {
+        return ResponseEntity.ok(expenseService.deleteExpenses(principal.getId(), ids));
+    }
+    
     @GetMapping("/{id}")
-    public ResponseEntity<Expense> getExpenseById(@AuthenticationPrincipal UserDetails userDetails,
+    @QueryBudget(2)
+    public ResponseEntity<ExpenseResponse> getExpenseById(@AuthenticationPrincipal AuthenticatedUser principal,
                                                     @PathVariable Long id) {
-        Expense expense = expenseService.getExpenseById(userDetails.getUsername(), id);
+        ExpenseResponse expense = expenseService.getExpenseById(principal.getId(), id);
         return ResponseEntity.ok(expense);
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<Expense> updateExpense(@AuthenticationPrincipal UserDetails userDetails,
+    @QueryBudget(6)
+    public ResponseEntity<ExpenseResponse> updateExpense(@AuthenticationPrincipal AuthenticatedUser principal,
                                                    @PathVariable Long id,
                                                    @Valid @RequestBody ExpenseRequest request) {
-        Expense expense = expenseService.updateExpense(userDetails.getUsername(), id, request);
+        ExpenseResponse expense = expenseService.updateExpense(principal.getId(), id, request);
         return ResponseEntity.ok(expense);
     }
     
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteExpense(@AuthenticationPrincipal UserDetails userDetails,
+    public ResponseEntity<?> deleteExpense(@AuthenticationPrincipal AuthenticatedUser principal,
                                             @PathVariable Long id) {
-        expenseService.deleteExpense(userDetails.getUsername(), id);
+        expenseService.deleteExpense(principal.getId(), id);
         return ResponseEntity.ok().body("Expense deleted successfully");
     }
 }
@@ -0,0 +1,62 @@
+package com.budget.backend.controller;
+
+
+import com.budget.backend.dto.ExportJobResponse;
+import com.budget.backend.exception.ResourceNotFoundException;
+import com.budget.backend.security.AuthenticatedUser;
+import com.budget.backend.service.ExportJob;
+import com.budget.backend.service.ExportJobService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/exports")
+public class ExportController {
+    
+    @Autowired
+    private ExportJobService exportJobService;
+    
+    @PostMapping
+    public ResponseEntity<ExportJobResponse> startExport(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                         @RequestParam(defaultValue = "false") boolean gzip) {
+        ExportJob job = exportJobService.submit(principal.getId(), gzip);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header(HttpHeaders.LOCATION, "/api/exports/" + job.getId())
+                .body(toResponse(job));
+    }
+    
+    @GetMapping("/{id}")
+    public ResponseEntity<ExportJobResponse> getExport(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                       @PathVariable String id) {
+        return ResponseEntity.ok(toResponse(exportJobService.getJob(principal.getId(), id)));
+    }
+    
+    // Supports a single byte range so interrupted downloads can resume
+    @GetMapping("/{id}/download")
+    public void download(@AuthenticationPrincipal AuthenticatedUser principal, @PathVariable String id,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ExportJob job = exportJobService.getJob(principal.getId(), id);
+        Long size = exportJobService.getSize(job);
+        if (size == null) {
+            throw new ResourceNotFoundException("Export is not ready");
+        }
+        
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(job.getFileName()).build().toString());
+        // The file never changes once written, so the job id identifies its content
+        FileResponses.send(request, response, job.getFile(), size, job.getContentType(), "\"" + job.getId() + "\"");
+    }
+    
+    private ExportJobResponse toResponse(ExportJob job) {
+        return job.toResponse(exportJobService.getTtlMinutes(), exportJobService.getSize(job));
+    }
+}
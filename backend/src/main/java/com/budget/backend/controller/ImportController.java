@@ -0,0 +1,34 @@
+package com.budget.backend.controller;
+
+
+import com.budget.backend.dto.ImportResult;
+import com.budget.backend.exception.BadRequestException;
+import com.budget.backend.security.AuthenticatedUser;
+import com.budget.backend.service.TransactionImportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/import")
+public class ImportController {
+    
+    @Autowired
+    private TransactionImportService transactionImportService;
+    
+    // Valid rows are imported even when others fail; the response lists the failed lines
+    @PostMapping
+    public ResponseEntity<ImportResult> importTransactions(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                           @RequestParam("file") MultipartFile file) throws IOException {
+        if (file.isEmpty()) {
+            throw new BadRequestException("File is empty");
+        }
+        
+        ImportResult result = transactionImportService.importCsv(principal.getId(), file.getInputStream());
+        return ResponseEntity.ok(result);
+    }
+}
@@ -1,18 +1,22 @@
 package com.budget.backend.controller;
 
 
+import com.budget.backend.dto.BatchResult;
+import com.budget.backend.dto.IncomePatchRequest;
 import com.budget.backend.dto.IncomeRequest;
+import com.budget.backend.dto.IncomeResponse;
+import com.budget.backend.dto.PageResponse;
+import com.budget.backend.dto.TransactionFilter;
 import com.budget.backend.entity.Income;
+import com.budget.backend.monitoring.QueryBudget;
+import com.budget.backend.security.AuthenticatedUser;
 import com.budget.backend.service.IncomeService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalDate;
 import java.util.List;
 
 @RestController
@@ -23,40 +27,69 @@ public class IncomeController {
     private IncomeService incomeService;
     
     @PostMapping
-    public ResponseEntity<Income> createIncome(@AuthenticationPrincipal UserDetails userDetails,
+    @QueryBudget(5)
+    public ResponseEntity<Income> createIncome(@AuthenticationPrincipal AuthenticatedUser principal,
                                                  @Valid @RequestBody IncomeRequest request) {
-        Income income = incomeService.createIncome(userDetails.getUsername(), request);
+        Income income = incomeService.createIncome(principal.getId(), request);
         return ResponseEntity.ok(income);
     }
     
     @GetMapping
-    public ResponseEntity<List<Income>> getAllIncomes(@AuthenticationPrincipal UserDetails userDetails,
-                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
-                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
-                                                        @RequestParam(required = false) String category) {
-        List<Income> incomes = incomeService.getFilteredIncomes(userDetails.getUsername(), startDate, endDate, category);
+    @QueryBudget(3)
+    public ResponseEntity<?> getAllIncomes(@AuthenticationPrincipal AuthenticatedUser principal,
+                                           TransactionFilter filter,
+                                           @RequestParam(required = false) Integer limit,
+                                           @RequestParam(required = false) String cursor) {
+        // Paged when the client asks for it; the plain list stays for older clients
+        if (limit != null || cursor != null) {
+            PageResponse<IncomeResponse> page = incomeService.getIncomePage(principal.getId(), filter, cursor, limit);
+            return ResponseEntity.ok(page);
+        }
+        
+        List<IncomeResponse> incomes = incomeService.getFilteredIncomes(principal.getId(), filter);
         return ResponseEntity.ok(incomes);
     }
     
+    // Batch endpoints take a JSON array (at most 1000 items) and report a result per item
+    @PostMapping("/batch")
+    public ResponseEntity<BatchResult> createIncomes(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                 @RequestBody List<IncomeRequest> requests) {
+        return ResponseEntity.ok(incomeService.createIncomes(principal.getId(), requests));
+    }
+    
+    @PatchMapping("/batch")
+    public ResponseEntity<BatchResult> updateIncomes(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                 @RequestBody List<IncomePatchRequest> patches) {
+        return ResponseEntity.ok(incomeService.updateIncomes(principal.getId(), patches));
+    }
+    
+    @DeleteMapping("/batch")
+    public ResponseEntity<BatchResult> deleteIncomes(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                 @RequestBody List<Long> ids) {
+        return ResponseEntity.ok(incomeService.deleteIncomes(principal.getId(), ids));
+    }
+    
     @GetMapping("/{id}")
-    public ResponseEntity<Income> getIncomeById(@AuthenticationPrincipal UserDetails userDetails,
+    @QueryBudget(2)
+    public ResponseEntity<IncomeResponse> getIncomeById(@AuthenticationPrincipal AuthenticatedUser principal,
                                                   @PathVariable Long id) {
-        Income income = incomeService.getIncomeById(userDetails.getUsername(), id);
+        IncomeResponse income = incomeService.getIncomeById(principal.getId(), id);
         return ResponseEntity.ok(income);
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<Income> updateIncome(@AuthenticationPrincipal UserDetails userDetails,
+    @QueryBudget(6)
+    public ResponseEntity<IncomeResponse> updateIncome(@AuthenticationPrincipal AuthenticatedUser principal,
                                                  @PathVariable Long id,
                                                  @Valid @RequestBody IncomeRequest request) {
-        Income income = incomeService.updateIncome(userDetails.getUsername(), id, request);
+        IncomeResponse income = incomeService.updateIncome(principal.getId(), id, request);
         return ResponseEntity.ok(income);
     }
     
     @DeleteMapping("/{id}")
-    public ResponseEntity<?> deleteIncome(@AuthenticationPrincipal UserDetails userDetails,
+    public ResponseEntity<?> deleteIncome(@AuthenticationPrincipal AuthenticatedUser principal,
                                            @PathVariable Long id) {
-        incomeService.deleteIncome(userDetails.getUsername(), id);
+        incomeService.deleteIncome(principal.getId(), id);
         return ResponseEntity.ok().body("Income deleted successfully");
     }
 }
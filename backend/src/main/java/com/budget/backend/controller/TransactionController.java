@@ -0,0 +1,31 @@
+package com.budget.backend.controller;
+
+
+import com.budget.backend.dto.PageResponse;
+import com.budget.backend.dto.TransactionResponse;
+import com.budget.backend.monitoring.QueryBudget;
+import com.budget.backend.security.AuthenticatedUser;
+import com.budget.backend.service.TransactionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/transactions")
+public class TransactionController {
+    
+    @Autowired
+    private TransactionService transactionService;
+    
+    // Incomes and expenses in one newest-first list, paged with the opaque nextCursor
+    @GetMapping
+    @QueryBudget(3)
+    public ResponseEntity<PageResponse<TransactionResponse>> getTransactions(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+        PageResponse<TransactionResponse> page = transactionService.getTimeline(principal.getId(), cursor, limit);
+        return ResponseEntity.ok(page);
+    }
+}
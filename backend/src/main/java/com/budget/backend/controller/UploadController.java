@@ -0,0 +1,47 @@
+package com.budget.backend.controller;
+
+
+import com.budget.backend.exception.ResourceNotFoundException;
+import com.budget.backend.service.UploadFileResolver;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+
+// Serves profile photos and their thumbnails
+@RestController
+public class UploadController {
+    
+    private static final String IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable().getHeaderValue();
+    private static final String REVALIDATE = CacheControl.noCache().cachePublic().getHeaderValue();
+    
+    @Autowired
+    private UploadFileResolver uploadFileResolver;
+    
+    @RequestMapping(value = "/uploads/{*path}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void serve(@PathVariable String path, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        // {*path} captures the leading slash
+        String relative = path.startsWith("/") ? path.substring(1) : path;
+        UploadFileResolver.UploadFile file = uploadFileResolver.resolve(relative);
+        if (file == null) {
+            throw new ResourceNotFoundException("File not found");
+        }
+        
+        // Content-addressed names change whenever the content does, so browsers never need to ask again
+        response.setHeader(HttpHeaders.CACHE_CONTROL, file.immutable() ? IMMUTABLE : REVALIDATE);
+        try {
+            FileResponses.send(request, response, file.file(), file.size(), file.contentType(), file.etag());
+        } catch (NoSuchFileException e) {
+            // Deleted since it was cached
+            uploadFileResolver.evict(relative);
+            response.reset();
+            throw new ResourceNotFoundException("File not found");
+        }
+    }
+}
@@ -3,35 +3,34 @@ package com.budget.backend.controller;
 
 import com.budget.backend.dto.ChangePasswordRequest;
 import com.budget.backend.dto.DashboardResponse;
-import com.budget.backend.dto.TransactionResponse;
+import com.budget.backend.dto.MonthlyReportRow;
 import com.budget.backend.dto.UpdateProfileRequest;
-import com.budget.backend.entity.Expense;
-import com.budget.backend.entity.Income;
+import com.budget.backend.dto.UserResponse;
 import com.budget.backend.entity.User;
-import com.budget.backend.repository.ExpenseRepository;
-import com.budget.backend.repository.IncomeRepository;
-import com.budget.backend.service.ExpenseService;
-import com.budget.backend.service.IncomeService;
+import com.budget.backend.monitoring.QueryBudget;
+import com.budget.backend.security.AuthenticatedUser;
+import com.budget.backend.service.AccountDeletionService;
+import com.budget.backend.service.DashboardCache;
+import com.budget.backend.service.DashboardService;
+import com.budget.backend.service.MonthlyRollupService;
+import com.budget.backend.service.TransactionExportService;
 import com.budget.backend.service.UserService;
 import jakarta.validation.Valid;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.StringWriter;
-import java.math.BigDecimal;
-import java.util.ArrayList;
-import java.util.Comparator;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 //import java.util.stream.Stream;
 
 @RestController
@@ -42,156 +41,128 @@ public class UserController {
     private UserService userService;
     
     @Autowired
-    private IncomeService incomeService;
+    private MonthlyRollupService monthlyRollupService;
     
     @Autowired
-    private ExpenseService expenseService;
+    private DashboardService dashboardService;
     
     @Autowired
-    private IncomeRepository incomeRepository;
+    private TransactionExportService transactionExportService;
     
     @Autowired
-    private ExpenseRepository expenseRepository;
+    private AccountDeletionService accountDeletionService;
     
     @GetMapping("/profile")
-    public ResponseEntity<User> getProfile(@AuthenticationPrincipal UserDetails userDetails) {
-        User user = userService.getCurrentUser(userDetails.getUsername());
+    @QueryBudget(2)
+    public ResponseEntity<UserResponse> getProfile(@AuthenticationPrincipal AuthenticatedUser principal) {
+        UserResponse user = userService.getProfile(principal.getId());
         return ResponseEntity.ok(user);
     }
     
     @PutMapping("/profile")
-    public ResponseEntity<User> updateProfile(@AuthenticationPrincipal UserDetails userDetails,
+    public ResponseEntity<User> updateProfile(@AuthenticationPrincipal AuthenticatedUser principal,
                                                @Valid @RequestBody UpdateProfileRequest request) {
-        User user = userService.updateProfile(userDetails.getUsername(), request);
+        User user = userService.updateProfile(principal.getId(), request);
         return ResponseEntity.ok(user);
     }
     
     @PostMapping("/profile/photo")
-    public ResponseEntity<User> uploadProfilePhoto(@AuthenticationPrincipal UserDetails userDetails,
+    public ResponseEntity<User> uploadProfilePhoto(@AuthenticationPrincipal AuthenticatedUser principal,
                                                      @RequestParam("file") MultipartFile file) {
-        User user = userService.uploadProfilePhoto(userDetails.getUsername(), file);
+        User user = userService.uploadProfilePhoto(principal.getId(), file);
         return ResponseEntity.ok(user);
     }
     
     @PutMapping("/password")
-    public ResponseEntity<?> changePassword(@AuthenticationPrincipal UserDetails userDetails,
+    public ResponseEntity<?> changePassword(@AuthenticationPrincipal AuthenticatedUser principal,
                                              @Valid @RequestBody ChangePasswordRequest request) {
-        userService.changePassword(userDetails.getUsername(), request);
+        userService.changePassword(principal.getId(), request);
         return ResponseEntity.ok().body(Map.of("message", "Password changed successfully"));
     }
     
     @PutMapping("/currency")
-    public ResponseEntity<User> updateCurrency(@AuthenticationPrincipal UserDetails userDetails,
+    public ResponseEntity<User> updateCurrency(@AuthenticationPrincipal AuthenticatedUser principal,
                                                  @RequestBody Map<String, String> request) {
-        User user = userService.updateCurrency(userDetails.getUsername(), request.get("currency"));
+        User user = userService.updateCurrency(principal.getId(), request.get("currency"));
         return ResponseEntity.ok(user);
     }
     
     @GetMapping("/dashboard")
-    public ResponseEntity<DashboardResponse> getDashboard(@AuthenticationPrincipal UserDetails userDetails) {
-        User user = userService.getCurrentUser(userDetails.getUsername());
+    @QueryBudget(4)
+    public ResponseEntity<DashboardResponse> getDashboard(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Long userId = principal.getId();
         
-        BigDecimal totalIncome = incomeService.getTotalIncome(user.getId());
-        BigDecimal totalExpense = expenseService.getTotalExpense(user.getId());
-        BigDecimal balance = totalIncome.subtract(totalExpense);
-        
-        // Get recent 5 transactions
-        List<Income> recentIncomes = incomeRepository.findTop5ByUserIdOrderByDateDesc(user.getId());
-        List<Expense> recentExpenses = expenseRepository.findTop5ByUserIdOrderByDateDesc(user.getId());
-        
-        List<TransactionResponse> transactions = new ArrayList<>();
-        
-        // Convert incomes to transaction responses
-        for (Income income : recentIncomes) {
-            transactions.add(new TransactionResponse(
-                    income.getId(),
-                    "income",
-                    income.getAmount(),
-                    income.getCategory(),
-                    income.getSource(),
-                    income.getDate(),
-                    income.getNote()
-            ));
-        }
-        
-        // Convert expenses to transaction responses
-        for (Expense expense : recentExpenses) {
-            transactions.add(new TransactionResponse(
-                    expense.getId(),
-                    "expense",
-                    expense.getAmount(),
-                    expense.getCategory(),
-                    expense.getDescription(),
-                    expense.getDate(),
-                    expense.getNote()
-            ));
+        // Answered from memory when the client already has the current version
+        String etag = dashboardService.currentETag(userId);
+        if (etag != null && matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .build();
         }
         
-        // Sort by date descending and take top 5
-        transactions = transactions.stream()
-                .sorted(Comparator.comparing(TransactionResponse::getDate).reversed())
-                .limit(5)
-                .collect(Collectors.toList());
-        
-        DashboardResponse response = new DashboardResponse(totalIncome, totalExpense, balance, transactions);
-        
-        return ResponseEntity.ok(response);
+        DashboardCache.Entry dashboard = dashboardService.getDashboard(userId);
+        return ResponseEntity.ok()
+                .eTag(dashboard.etag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .body(dashboard.response());
     }
     
+    // Per-month, per-category totals read from the rollup table; defaults to the last 12 months
+    @GetMapping("/reports/monthly")
+    @QueryBudget(2)
+    public ResponseEntity<List<MonthlyReportRow>> getMonthlyReport(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to) {
+        YearMonth end = to != null ? to : YearMonth.now();
+        YearMonth start = from != null ? from : end.minusMonths(11);
+        return ResponseEntity.ok(monthlyRollupService.getReport(principal.getId(), start, end));
+    }
+    
+    // Streamed straight from the database; ?gzip=true compresses on the fly
     @GetMapping("/export")
-    public ResponseEntity<String> exportTransactions(@AuthenticationPrincipal UserDetails userDetails) {
-        User user = userService.getCurrentUser(userDetails.getUsername());
-        
-        List<Income> incomes = incomeRepository.findByUserIdOrderByDateDesc(user.getId());
-        List<Expense> expenses = expenseRepository.findByUserIdOrderByDateDesc(user.getId());
+    public ResponseEntity<StreamingResponseBody> exportTransactions(@AuthenticationPrincipal AuthenticatedUser principal,
+                                                                    @RequestParam(defaultValue = "false") boolean gzip) {
+        Long userId = principal.getId();
         
-        try {
-            StringWriter writer = new StringWriter();
-            CSVPrinter csvPrinter = new CSVPrinter(writer, CSVFormat.DEFAULT
-                    .withHeader("Date", "Type", "Category", "Description", "Amount", "Note"));
-            
-            // Write incomes
-            for (Income income : incomes) {
-                csvPrinter.printRecord(
-                        income.getDate(),
-                        "Income",
-                        income.getCategory(),
-                        income.getSource(),
-                        income.getAmount(),
-                        income.getNote()
-                );
-            }
-            
-            // Write expenses
-            for (Expense expense : expenses) {
-                csvPrinter.printRecord(
-                        expense.getDate(),
-                        "Expense",
-                        expense.getCategory(),
-                        expense.getDescription(),
-                        expense.getAmount(),
-                        expense.getNote()
-                );
-            }
-            
-            csvPrinter.flush();
-            
-            HttpHeaders headers = new HttpHeaders();
+        HttpHeaders headers = new HttpHeaders();
+        if (gzip) {
+            headers.setContentType(MediaType.parseMediaType("application/gzip"));
+            headers.setContentDispositionFormData("attachment", "transactions.csv.gz");
+        } else {
             headers.setContentType(MediaType.parseMediaType("text/csv"));
             headers.setContentDispositionFormData("attachment", "transactions.csv");
-            
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(writer.toString());
-                    
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
         }
+        
+        StreamingResponseBody body = out -> transactionExportService.writeCsv(userId, out, gzip);
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
     }
     
+    // async=true returns straight away and deletes in the background, for accounts with a long history
     @DeleteMapping("/account")
-    public ResponseEntity<?> deleteAccount(@AuthenticationPrincipal UserDetails userDetails) {
-        userService.deleteAccount(userDetails.getUsername());
+    public ResponseEntity<?> deleteAccount(@AuthenticationPrincipal AuthenticatedUser principal,
+                                            @RequestParam(defaultValue = "false") boolean async) {
+        if (async) {
+            accountDeletionService.deleteAsync(principal.getId());
+            return ResponseEntity.accepted().body(Map.of("message", "Account deletion started"));
+        }
+        userService.deleteAccount(principal.getId());
         return ResponseEntity.ok().body(Map.of("message", "Account deleted successfully"));
     }
+    
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            if (candidate.trim().equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
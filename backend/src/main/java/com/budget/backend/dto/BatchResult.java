@@ -0,0 +1,70 @@
+package com.budget.backend.dto;
+
+
+import com.budget.backend.exception.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.ArrayList;
+import java.util.List;
+
+// Outcome of a batch call, one result per submitted item in submission order
+@Data
+@NoArgsConstructor
+public class BatchResult {
+    
+    public static final int MAX_ITEMS = 1000;
+    
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+    public static final String INVALID = "invalid";
+    public static final String NOT_FOUND = "not_found";
+    
+    private int succeeded;
+    private int failed;
+    private List<ItemResult> results = new ArrayList<>();
+    
+    public static void checkSize(List<?> items) {
+        if (items == null || items.isEmpty()) {
+            throw new BadRequestException("No items in batch");
+        }
+        if (items.size() > MAX_ITEMS) {
+            throw new BadRequestException("At most " + MAX_ITEMS + " items per batch");
+        }
+    }
+    
+    // Results are filled in by index, so items can be resolved in any order
+    public static BatchResult ofSize(int size) {
+        BatchResult result = new BatchResult();
+        for (int i = 0; i < size; i++) {
+            result.results.add(new ItemResult(i, null, null, null));
+        }
+        return result;
+    }
+    
+    public void success(int index, Long id, String status) {
+        ItemResult item = results.get(index);
+        item.setId(id);
+        item.setStatus(status);
+        succeeded++;
+    }
+    
+    public void failure(int index, Long id, String status, String error) {
+        ItemResult item = results.get(index);
+        item.setId(id);
+        item.setStatus(status);
+        item.setError(error);
+        failed++;
+    }
+    
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class ItemResult {
+        private int index;
+        private Long id;
+        private String status;
+        private String error;
+    }
+}
@@ -0,0 +1,24 @@
+package com.budget.backend.dto;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ExportJobResponse {
+    private String id;
+    private String status; // queued, running, done, failed
+    private long rowsWritten;
+    private long totalRows; // estimate taken when the job was submitted
+    private int progress; // percent
+    private Long sizeBytes; // set once done
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+    private LocalDateTime expiresAt;
+    private String error;
+    private String downloadUrl;
+}
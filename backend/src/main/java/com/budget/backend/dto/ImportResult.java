@@ -0,0 +1,25 @@
+package com.budget.backend.dto;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class ImportResult {
+    
+    private int imported;
+    private int failed;
+    private List<RowError> errors = new ArrayList<>(); // capped; failed has the full count
+    
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class RowError {
+        private long line;
+        private String message;
+    }
+}
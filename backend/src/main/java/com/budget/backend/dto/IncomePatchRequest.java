@@ -0,0 +1,34 @@
+package com.budget.backend.dto;
+
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// One item of a batch update; only the non-null fields are changed
+@Data
+public class IncomePatchRequest {
+    
+    @NotNull(message = "Id is required")
+    private Long id;
+    
+    @Positive(message = "Amount must be positive")
+    private BigDecimal amount;
+    
+    @Size(max = 255, message = "Category must be at most 255 characters")
+    @Pattern(regexp = ".*\\S.*", message = "Category must not be blank")
+    private String category;
+    
+    @Size(max = 255, message = "Source must be at most 255 characters")
+    @Pattern(regexp = ".*\\S.*", message = "Source must not be blank")
+    private String source;
+    
+    private LocalDate date;
+    
+    @Size(max = 500, message = "Note must be at most 500 characters")
+    private String note;
+}
@@ -0,0 +1,23 @@
+package com.budget.backend.dto;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Read-only view of incomes, selected straight into this class; serializes the same as the Income entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IncomeResponse {
+    private Long id;
+    private BigDecimal amount;
+    private String category;
+    private String source;
+    private LocalDate date;
+    private String note;
+    private LocalDateTime createdAt;
+}
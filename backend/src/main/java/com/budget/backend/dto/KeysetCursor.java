@@ -0,0 +1,38 @@
+package com.budget.backend.dto;
+
+
+import com.budget.backend.exception.BadRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Position in a (date desc, id desc) listing; clients only ever see the opaque encoded form.
+// type is only set in the merged timeline, where ids from the two tables can collide.
+public record KeysetCursor(LocalDate date, Long id, String type) {
+    
+    public KeysetCursor(LocalDate date, Long id) {
+        this(date, id, null);
+    }
+    
+    public String encode() {
+        String raw = date + ":" + id + (type != null ? ":" + type : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", -1);
+            if (parts.length < 2 || parts.length > 3) {
+                throw new BadRequestException("Invalid cursor");
+            }
+            return new KeysetCursor(LocalDate.parse(parts[0]), Long.parseLong(parts[1]), parts.length == 3 ? parts[2] : null);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new BadRequestException("Invalid cursor");
+        }
+    }
+}
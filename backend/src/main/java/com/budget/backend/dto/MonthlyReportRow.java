@@ -0,0 +1,18 @@
+package com.budget.backend.dto;
+
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MonthlyReportRow {
+    private String month; // yyyy-MM
+    private String type; // "income" or "expense"
+    private String category;
+    private BigDecimal total;
+    private Long count;
+}
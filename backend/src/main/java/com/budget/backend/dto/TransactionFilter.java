@@ -0,0 +1,42 @@
+package com.budget.backend.dto;
+
+
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+// Query-string filter for the expense and income lists; every field is optional and combines with AND
+@Data
+public class TransactionFilter {
+    
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate startDate;
+    
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate endDate;
+    
+    private BigDecimal minAmount;
+    
+    private BigDecimal maxAmount;
+    
+    // Repeat the parameter (or comma-separate) to match any of several categories
+    private List<String> category;
+    
+    // Prefix match on the description (expenses) or source (incomes)
+    private String search;
+    
+    // date_desc (default), date_asc, amount_desc or amount_asc
+    private String sort;
+    
+    public static TransactionFilter of(LocalDate startDate, LocalDate endDate, String category) {
+        TransactionFilter filter = new TransactionFilter();
+        filter.setStartDate(startDate);
+        filter.setEndDate(endDate);
+        if (category != null && !category.isEmpty()) {
+            filter.setCategory(List.of(category));
+        }
+        return filter;
+    }
+}
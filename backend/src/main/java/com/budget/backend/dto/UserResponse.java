@@ -0,0 +1,27 @@
+package com.budget.backend.dto;
+
+
+import com.budget.backend.entity.StoredFile;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+// Read-only view of the profile, selected straight into this class; serializes the same as the User entity
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserResponse {
+    private Long id;
+    private String name;
+    private String email;
+    private String profilePhoto;
+    private String currency;
+    private String role;
+    private LocalDateTime createdAt;
+    
+    public Map<String, String> getProfilePhotoVariants() {
+        return StoredFile.variantPaths(profilePhoto);
+    }
+}
@@ -17,7 +17,10 @@ import java.time.LocalDateTime;
 public class Expense {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "expense_id")
+    @TableGenerator(name = "expense_id", table = IdSequences.TABLE, pkColumnName = IdSequences.NAME_COLUMN,
+            valueColumnName = IdSequences.VALUE_COLUMN, pkColumnValue = IdSequences.EXPENSES,
+            allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
     
     @Column(nullable = false)
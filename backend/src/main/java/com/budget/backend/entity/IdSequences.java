@@ -0,0 +1,18 @@
+package com.budget.backend.entity;
+
+// Table-backed id generation shared by the entities and by the bulk JDBC writers. Ids are handed out
+// in blocks of ALLOCATION_SIZE so Hibernate doesn't need the generated key of each INSERT and can batch them.
+public final class IdSequences {
+    
+    public static final String TABLE = "id_sequences";
+    public static final String NAME_COLUMN = "sequence_name";
+    public static final String VALUE_COLUMN = "next_val";
+    public static final int ALLOCATION_SIZE = 50;
+    
+    public static final String USERS = "users";
+    public static final String EXPENSES = "expenses";
+    public static final String INCOMES = "incomes";
+    
+    private IdSequences() {
+    }
+}
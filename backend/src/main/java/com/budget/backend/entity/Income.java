@@ -17,7 +17,10 @@ import java.time.LocalDateTime;
 public class Income {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "income_id")
+    @TableGenerator(name = "income_id", table = IdSequences.TABLE, pkColumnName = IdSequences.NAME_COLUMN,
+            valueColumnName = IdSequences.VALUE_COLUMN, pkColumnValue = IdSequences.INCOMES,
+            allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
     
     @Column(nullable = false)
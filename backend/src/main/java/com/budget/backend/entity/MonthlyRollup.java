@@ -0,0 +1,57 @@
+package com.budget.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Running total of one user's incomes or expenses for one category in one month.
+// Maintained by MonthlyRollupService in the same transaction as every income/expense write.
+@Entity
+@Table(name = "monthly_rollups")
+@IdClass(MonthlyRollup.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonthlyRollup {
+    
+    public static final String INCOME = "INCOME";
+    public static final String EXPENSE = "EXPENSE";
+    
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Id
+    @Column(length = 10)
+    private String kind;
+    
+    @Id
+    private Integer period; // yyyymm
+    
+    @Id
+    private String category;
+    
+    @Column(nullable = false)
+    private BigDecimal total;
+    
+    @Column(name = "entry_count", nullable = false)
+    private Long entryCount;
+    
+    public static int periodOf(LocalDate date) {
+        return date.getYear() * 100 + date.getMonthValue();
+    }
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long userId;
+        private String kind;
+        private Integer period;
+        private String category;
+    }
+}
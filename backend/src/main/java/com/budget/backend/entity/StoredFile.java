@@ -0,0 +1,79 @@
+package com.budget.backend.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// One uploaded file, stored once per distinct content and shared through refCount
+@Entity
+@Table(name = "stored_files")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredFile {
+    
+    // Square JPEG thumbnails generated next to each stored image, e.g. ab/cd/<hash>_128.jpg
+    public static final int[] VARIANT_SIZES = {64, 128, 256};
+    
+    private static final Pattern PATH = Pattern.compile("([0-9a-f]{2}/[0-9a-f]{2}/)([0-9a-f]{64})\\.(jpg|png)");
+    private static final Pattern VARIANT_PATH = Pattern.compile("[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{64}_\\d+\\.jpg");
+    
+    @Id
+    @Column(length = 64)
+    private String sha256;
+    
+    @Column(nullable = false)
+    private String path; // relative to app.upload.dir
+    
+    @Column(name = "content_type", nullable = false, length = 50)
+    private String contentType;
+    
+    @Column(nullable = false)
+    private Long size;
+    
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+    
+    public static String pathOf(String sha256, String extension) {
+        return sha256.substring(0, 2) + "/" + sha256.substring(2, 4) + "/" + sha256 + "." + extension;
+    }
+    
+    // The hash in a content-addressed path, or null for anything else (e.g. photos stored before content addressing)
+    public static String hashOf(String path) {
+        Matcher matcher = path != null ? PATH.matcher(path) : null;
+        return matcher != null && matcher.matches() ? matcher.group(2) : null;
+    }
+    
+    // True for stored originals and their variants, whose names are derived from their content
+    public static boolean isContentAddressed(String path) {
+        return hashOf(path) != null || VARIANT_PATH.matcher(path).matches();
+    }
+    
+    public static String variantPath(String path, int size) {
+        Matcher matcher = PATH.matcher(path);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a stored file path: " + path);
+        }
+        return matcher.group(1) + matcher.group(2) + "_" + size + ".jpg";
+    }
+    
+    // Variant paths keyed by size, empty for paths that have no variants
+    public static Map<String, String> variantPaths(String path) {
+        Map<String, String> variants = new LinkedHashMap<>();
+        if (hashOf(path) != null) {
+            for (int size : VARIANT_SIZES) {
+                variants.put(String.valueOf(size), variantPath(path, size));
+            }
+        }
+        return variants;
+    }
+}
@@ -1,13 +1,13 @@
 package com.budget.backend.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Map;
 
 @Entity
 @Table(name = "users")
@@ -17,7 +17,10 @@ import java.util.List;
 public class User {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "user_id")
+    @TableGenerator(name = "user_id", table = IdSequences.TABLE, pkColumnName = IdSequences.NAME_COLUMN,
+            valueColumnName = IdSequences.VALUE_COLUMN, pkColumnValue = IdSequences.USERS,
+            allocationSize = IdSequences.ALLOCATION_SIZE)
     private Long id;
     
     @Column(nullable = false)
@@ -42,11 +45,9 @@ public class User {
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
     
-    @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
-    @JsonIgnore  // Don't include incomes when returning User
-    private List<Income> incomes = new ArrayList<>();
-    
-    @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
-    @JsonIgnore  // Don't include expenses when returning User
-    private List<Expense> expenses = new ArrayList<>();
-}
\ No newline at end of file
+    // Thumbnail paths under /uploads keyed by size ("64", "128", "256"); empty for photos uploaded before variants existed
+    @JsonProperty("profilePhotoVariants")
+    public Map<String, String> getProfilePhotoVariants() {
+        return StoredFile.variantPaths(profilePhoto);
+    }
+}
@@ -0,0 +1,16 @@
+package com.budget.backend.monitoring;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Most SQL statements one request to this endpoint should issue, counting the JWT filter's principal
+// lookup. Exceeding it is logged, or, when app.sql.query-budget.strict is on (tests), fails the statement that
+// goes over and with it the request, with a 500 before any of the response body is written.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+    
+    int value();
+}
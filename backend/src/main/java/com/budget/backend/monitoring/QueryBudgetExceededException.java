@@ -0,0 +1,8 @@
+package com.budget.backend.monitoring;
+
+public class QueryBudgetExceededException extends IllegalStateException {
+    
+    public QueryBudgetExceededException(String message) {
+        super(message);
+    }
+}
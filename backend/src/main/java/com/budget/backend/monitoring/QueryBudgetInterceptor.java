@@ -0,0 +1,24 @@
+package com.budget.backend.monitoring;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// Hands the matched controller method's @QueryBudget to the request's RequestQueries: QueryCountFilter checks
+// it once the whole request (filters included) has finished, and with strict budgets each statement is checked
+// against it before it runs
+public class QueryBudgetInterceptor implements HandlerInterceptor {
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestQueries queries = RequestQueries.current();
+        if (queries != null && handler instanceof HandlerMethod method) {
+            QueryBudget budget = method.getMethodAnnotation(QueryBudget.class);
+            if (budget != null) {
+                queries.setBudget(budget, method.getBeanType().getSimpleName() + "." + method.getMethod().getName());
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,66 @@
+package com.budget.backend.monitoring;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+
+// Counts the SQL statements each request issues, from before the security filters to the end of the
+// response, and publishes them as http.server.requests.queries alongside the request timer. A request over
+// its @QueryBudget is logged here once it has finished; by then the response has usually been committed, so
+// strict budgets are enforced earlier, on the statement that goes over (see RequestQueries.checkBudget).
+public class QueryCountFilter extends OncePerRequestFilter {
+    
+    private static final Logger log = LoggerFactory.getLogger(QueryCountFilter.class);
+    
+    private final MeterRegistry meterRegistry;
+    private final boolean strictBudgets;
+    
+    public QueryCountFilter(MeterRegistry meterRegistry, boolean strictBudgets) {
+        this.meterRegistry = meterRegistry;
+        this.strictBudgets = strictBudgets;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestQueries queries = RequestQueries.begin(strictBudgets);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            RequestQueries.end();
+        }
+        
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        DistributionSummary.builder("http.server.requests.queries")
+                .baseUnit("statements")
+                .tags("method", request.getMethod(), "uri", uri)
+                .register(meterRegistry)
+                .record(queries.getCount());
+        
+        for (Map.Entry<String, String> repeated : queries.getRepeated().entrySet()) {
+            log.warn("Possible N+1 in {} {}: statement ran {} times, from {}: {}", request.getMethod(), uri,
+                    queries.timesRun(repeated.getKey()), repeated.getValue(), repeated.getKey());
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("{} {}: {} statements in {} ms", request.getMethod(), uri, queries.getCount(), queries.getElapsedMillis());
+        }
+        
+        QueryBudget budget = queries.getBudget();
+        if (budget != null && queries.getCount() > budget.value()) {
+            String message = String.format("%s %s (%s) ran %d statements, budget is %d", request.getMethod(), uri,
+                    queries.getHandler(), queries.getCount(), budget.value());
+            log.warn("Query budget exceeded: {}", message);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.budget.backend.monitoring;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.listener.logging.DefaultQueryLogEntryCreator;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Sees every statement that goes through the main DataSource: counts it against the current request,
+// logs it with its caller when it is slow (or picked by the sample rate), and notes SELECTs repeated
+// often enough within one request to look like an N+1. Bound parameters are logged as their types only
+// (they include emails and password hashes) unless logParameters is set.
+public class QueryMonitor implements QueryExecutionListener {
+    
+    private static final Logger log = LoggerFactory.getLogger(QueryMonitor.class);
+    
+    private static final String APP_PACKAGE = "com.budget.backend.";
+    private static final String OWN_PACKAGE = QueryMonitor.class.getPackageName() + ".";
+    
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+    
+    private final long slowQueryMillis;
+    private final int nPlusOneThreshold;
+    private final double sampleRate;
+    private final DefaultQueryLogEntryCreator logEntryCreator;
+    
+    public QueryMonitor(long slowQueryMillis, int nPlusOneThreshold, double sampleRate, boolean logParameters) {
+        this.slowQueryMillis = slowQueryMillis;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.sampleRate = sampleRate;
+        this.logEntryCreator = logParameters ? new DefaultQueryLogEntryCreator() : new TypesOnlyLogEntryCreator();
+    }
+    
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        RequestQueries queries = RequestQueries.current();
+        if (queries != null) {
+            queries.checkBudget(queryInfoList.size());
+        }
+    }
+    
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        RequestQueries queries = RequestQueries.current();
+        if (queries != null) {
+            for (QueryInfo queryInfo : queryInfoList) {
+                String sql = queryInfo.getQuery();
+                int timesRun = queries.record(sql, execInfo.getElapsedTime(), isSelect(sql));
+                if (timesRun == nPlusOneThreshold) {
+                    queries.markRepeated(sql, caller());
+                }
+            }
+        }
+        
+        if (execInfo.getElapsedTime() >= slowQueryMillis) {
+            log.warn("Slow query from {}: {}", caller(),
+                    logEntryCreator.getLogEntry(execInfo, queryInfoList, false, false, false));
+        } else if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            log.info("Sampled query from {}: {}", caller(),
+                    logEntryCreator.getLogEntry(execInfo, queryInfoList, false, false, false));
+        }
+    }
+    
+    private static boolean isSelect(String sql) {
+        return sql.stripLeading().regionMatches(true, 0, "select", 0, 6);
+    }
+    
+    // The innermost application frame outside this package; repository interfaces are proxies,
+    // so this is usually the service method that called the repository
+    private static String caller() {
+        Optional<StackWalker.StackFrame> frame = STACK_WALKER.walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith(APP_PACKAGE)
+                        && !f.getClassName().startsWith(OWN_PACKAGE)
+                        && !f.getClassName().contains("$$"))
+                .findFirst());
+        return frame.map(f -> f.getClassName().substring(f.getClassName().lastIndexOf('.') + 1)
+                + "." + f.getMethodName() + ":" + f.getLineNumber()).orElse("unknown");
+    }
+    
+    // Keeps the parameter list (so the placeholder count and kinds are visible) but not the values
+    static class TypesOnlyLogEntryCreator extends DefaultQueryLogEntryCreator {
+        
+        @Override
+        public String getDisplayValue(ParameterSetOperation param) {
+            Object value = param.getArgs()[1];
+            return value == null ? "null" : value.getClass().getSimpleName();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.budget.backend.monitoring;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Statements issued by the current HTTP request, tracked on the request thread by QueryCountFilter.
+// Work handed to other threads (exports, thumbnails, async deletion) isn't attributed to the request.
+public class RequestQueries {
+    
+    private static final ThreadLocal<RequestQueries> CURRENT = new ThreadLocal<>();
+    
+    private int count;
+    private long elapsedMillis;
+    private final Map<String, Integer> selects = new HashMap<>();
+    
+    // Statements that crossed the N+1 threshold, with the code that issued them
+    private final Map<String, String> repeated = new LinkedHashMap<>();
+    
+    private final boolean strictBudget;
+    private QueryBudget budget;
+    private String handler;
+    
+    private RequestQueries(boolean strictBudget) {
+        this.strictBudget = strictBudget;
+    }
+    
+    static RequestQueries begin(boolean strictBudget) {
+        RequestQueries queries = new RequestQueries(strictBudget);
+        CURRENT.set(queries);
+        return queries;
+    }
+    
+    static void end() {
+        CURRENT.remove();
+    }
+    
+    static RequestQueries current() {
+        return CURRENT.get();
+    }
+    
+    // Returns how many times this exact SELECT has now run in the request (0 for other statements)
+    int record(String sql, long elapsed, boolean select) {
+        count++;
+        elapsedMillis += elapsed;
+        return select ? selects.merge(sql, 1, Integer::sum) : 0;
+    }
+    
+    // With strict budgets, fails the statement that would take the request over its budget, so the request
+    // fails before anything of the response is written
+    void checkBudget(int statements) {
+        if (strictBudget && budget != null && count + statements > budget.value()) {
+            throw new QueryBudgetExceededException(String.format("%s would run more than %d statements",
+                    handler, budget.value()));
+        }
+    }
+    
+    void markRepeated(String sql, String caller) {
+        repeated.putIfAbsent(sql, caller);
+    }
+    
+    void setBudget(QueryBudget budget, String handler) {
+        this.budget = budget;
+        this.handler = handler;
+    }
+    
+    int getCount() {
+        return count;
+    }
+    
+    long getElapsedMillis() {
+        return elapsedMillis;
+    }
+    
+    int timesRun(String sql) {
+        return selects.getOrDefault(sql, 0);
+    }
+    
+    Map<String, String> getRepeated() {
+        return repeated;
+    }
+    
+    QueryBudget getBudget() {
+        return budget;
+    }
+    
+    String getHandler() {
+        return handler;
+    }
+}
@@ -1,26 +1,55 @@
 package com.budget.backend.repository;
 
 
+import com.budget.backend.dto.ExpenseResponse;
 import com.budget.backend.entity.Expense;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ExpenseRepository extends JpaRepository<Expense, Long> {
-    List<Expense> findByUserIdOrderByDateDesc(Long userId);
+public interface ExpenseRepository extends JpaRepository<Expense, Long>, JpaSpecificationExecutor<Expense> {
+    // Read endpoints select straight into ExpenseResponse
+    String RESPONSE = "new com.budget.backend.dto.ExpenseResponse(e.id, e.amount, e.category, e.description, e.date, e.note, e.createdAt)";
     
-    List<Expense> findByUserIdAndDateBetweenOrderByDateDesc(Long userId, LocalDate startDate, LocalDate endDate);
+    @Query("SELECT " + RESPONSE + " FROM Expense e WHERE e.user.id = :userId ORDER BY e.date DESC")
+    List<ExpenseResponse> findResponsesByUserId(Long userId);
     
-    List<Expense> findByUserIdAndCategoryOrderByDateDesc(Long userId, String category);
+    @Query("SELECT " + RESPONSE + " FROM Expense e WHERE e.id = :id AND e.user.id = :userId")
+    Optional<ExpenseResponse> findResponseByIdAndUserId(Long id, Long userId);
     
-    List<Expense> findByUserIdAndDateBetweenAndCategoryOrderByDateDesc(Long userId, LocalDate startDate, LocalDate endDate, String category);
+    // Owner-scoped single-statement operations; a zero result means the row doesn't exist or isn't the user's
+    @Modifying
+    @Query("UPDATE Expense e SET e.amount = :amount, e.category = :category, e.description = :description, " +
+           "e.date = :date, e.note = :note WHERE e.id = :id AND e.user.id = :userId")
+    int updateByIdAndUserId(Long id, Long userId, BigDecimal amount, String category, String description,
+                            LocalDate date, String note);
     
-    @Query("SELECT SUM(e.amount) FROM Expense e WHERE e.user.id = :userId")
-    BigDecimal getTotalExpenseByUserId(Long userId);
+    @Modifying
+    @Query("DELETE FROM Expense e WHERE e.id = :id AND e.user.id = :userId")
+    int deleteByIdAndUserId(Long id, Long userId);
     
-    List<Expense> findTop5ByUserIdOrderByDateDesc(Long userId);
+    // Batch endpoints: which of the ids belong to the user, and a single-statement delete of those
+    @Query("SELECT e.id FROM Expense e WHERE e.user.id = :userId AND e.id IN :ids")
+    List<Long> findIdsByUserIdAndIdIn(Long userId, Collection<Long> ids);
+    
+    @Modifying
+    @Query("DELETE FROM Expense e WHERE e.user.id = :userId AND e.id IN :ids")
+    int deleteByUserIdAndIdIn(Long userId, Collection<Long> ids);
+    
+    // Account deletion: the user's rows a chunk at a time, then whatever is left in one statement
+    @Query("SELECT e.id FROM Expense e WHERE e.user.id = :userId")
+    List<Long> findIdsByUserId(Long userId, Pageable pageable);
+    
+    @Modifying
+    @Query("DELETE FROM Expense e WHERE e.user.id = :userId")
+    int deleteByUserId(Long userId);
 }
@@ -0,0 +1,32 @@
+package com.budget.backend.repository;
+
+
+import com.budget.backend.entity.IdSequences;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+// Reserves id blocks for rows written with plain JDBC, from the same table Hibernate's pooled generator uses
+@Repository
+public class IdSequenceRepository {
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    // Returns the first of count consecutive ids. Runs in its own short transaction so the sequence row
+    // isn't locked for the whole write that uses the ids.
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long reserve(String sequence, int count) {
+        Long next = jdbcTemplate.queryForObject("SELECT " + IdSequences.VALUE_COLUMN + " FROM " + IdSequences.TABLE +
+                " WHERE " + IdSequences.NAME_COLUMN + " = ? FOR UPDATE", Long.class, sequence);
+        jdbcTemplate.update("UPDATE " + IdSequences.TABLE + " SET " + IdSequences.VALUE_COLUMN + " = ? WHERE " +
+                IdSequences.NAME_COLUMN + " = ?", next + count, sequence);
+        
+        // Hibernate stores the last value it used and treats value + 1 as the top of its next block, so for a
+        // stored value V it would hand out V - 48 to V + 1. Those ids are still free; moving next_val on by
+        // count gives the first count of them to us and Hibernate's next block starts right after
+        return next - IdSequences.ALLOCATION_SIZE + 2;
+    }
+}
@@ -1,27 +1,56 @@
 
 package com.budget.backend.repository;
 
+import com.budget.backend.dto.IncomeResponse;
 import com.budget.backend.entity.Income;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface IncomeRepository extends JpaRepository<Income, Long> {
-    List<Income> findByUserIdOrderByDateDesc(Long userId);
+public interface IncomeRepository extends JpaRepository<Income, Long>, JpaSpecificationExecutor<Income> {
+    // Read endpoints select straight into IncomeResponse
+    String RESPONSE = "new com.budget.backend.dto.IncomeResponse(i.id, i.amount, i.category, i.source, i.date, i.note, i.createdAt)";
     
-    List<Income> findByUserIdAndDateBetweenOrderByDateDesc(Long userId, LocalDate startDate, LocalDate endDate);
+    @Query("SELECT " + RESPONSE + " FROM Income i WHERE i.user.id = :userId ORDER BY i.date DESC")
+    List<IncomeResponse> findResponsesByUserId(Long userId);
     
-    List<Income> findByUserIdAndCategoryOrderByDateDesc(Long userId, String category);
+    @Query("SELECT " + RESPONSE + " FROM Income i WHERE i.id = :id AND i.user.id = :userId")
+    Optional<IncomeResponse> findResponseByIdAndUserId(Long id, Long userId);
     
-    List<Income> findByUserIdAndDateBetweenAndCategoryOrderByDateDesc(Long userId, LocalDate startDate, LocalDate endDate, String category);
+    // Owner-scoped single-statement operations; a zero result means the row doesn't exist or isn't the user's
+    @Modifying
+    @Query("UPDATE Income i SET i.amount = :amount, i.category = :category, i.source = :source, " +
+           "i.date = :date, i.note = :note WHERE i.id = :id AND i.user.id = :userId")
+    int updateByIdAndUserId(Long id, Long userId, BigDecimal amount, String category, String source,
+                            LocalDate date, String note);
     
-    @Query("SELECT SUM(i.amount) FROM Income i WHERE i.user.id = :userId")
-    BigDecimal getTotalIncomeByUserId(Long userId);
+    @Modifying
+    @Query("DELETE FROM Income i WHERE i.id = :id AND i.user.id = :userId")
+    int deleteByIdAndUserId(Long id, Long userId);
     
-    List<Income> findTop5ByUserIdOrderByDateDesc(Long userId);
+    // Batch endpoints: which of the ids belong to the user, and a single-statement delete of those
+    @Query("SELECT i.id FROM Income i WHERE i.user.id = :userId AND i.id IN :ids")
+    List<Long> findIdsByUserIdAndIdIn(Long userId, Collection<Long> ids);
+    
+    @Modifying
+    @Query("DELETE FROM Income i WHERE i.user.id = :userId AND i.id IN :ids")
+    int deleteByUserIdAndIdIn(Long userId, Collection<Long> ids);
+    
+    // Account deletion: the user's rows a chunk at a time, then whatever is left in one statement
+    @Query("SELECT i.id FROM Income i WHERE i.user.id = :userId")
+    List<Long> findIdsByUserId(Long userId, Pageable pageable);
+    
+    @Modifying
+    @Query("DELETE FROM Income i WHERE i.user.id = :userId")
+    int deleteByUserId(Long userId);
 }
\ No newline at end of file
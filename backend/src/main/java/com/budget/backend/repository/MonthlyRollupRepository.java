@@ -0,0 +1,71 @@
+package com.budget.backend.repository;
+
+import com.budget.backend.entity.MonthlyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface MonthlyRollupRepository extends JpaRepository<MonthlyRollup, MonthlyRollup.Key> {
+    
+    String PERIOD = "EXTRACT(YEAR FROM date) * 100 + EXTRACT(MONTH FROM date)";
+    String UPSERT = "INSERT INTO monthly_rollups (user_id, kind, period, category, total, entry_count) ";
+    String ON_DUPLICATE = " ON DUPLICATE KEY UPDATE total = total + VALUES(total), entry_count = entry_count + VALUES(entry_count)";
+    
+    @Modifying
+    @Query(value = UPSERT + "VALUES (:userId, :kind, :period, :category, :amount, :count)" + ON_DUPLICATE, nativeQuery = true)
+    int add(Long userId, String kind, int period, String category, BigDecimal amount, long count);
+    
+    // Adds (sign = 1) or removes (sign = -1) the given rows, reading their current values straight from the table
+    @Modifying
+    @Query(value = UPSERT + "SELECT user_id, 'EXPENSE', " + PERIOD + ", category, SUM(amount) * :sign, COUNT(*) * :sign " +
+            "FROM expenses WHERE id IN (:ids) AND user_id = :userId " +
+            "GROUP BY user_id, " + PERIOD + ", category" + ON_DUPLICATE, nativeQuery = true)
+    int applyExpenses(Long userId, Collection<Long> ids, int sign);
+    
+    @Modifying
+    @Query(value = UPSERT + "SELECT user_id, 'INCOME', " + PERIOD + ", category, SUM(amount) * :sign, COUNT(*) * :sign " +
+            "FROM incomes WHERE id IN (:ids) AND user_id = :userId " +
+            "GROUP BY user_id, " + PERIOD + ", category" + ON_DUPLICATE, nativeQuery = true)
+    int applyIncomes(Long userId, Collection<Long> ids, int sign);
+    
+    @Query("SELECT SUM(r.total) FROM MonthlyRollup r WHERE r.userId = :userId AND r.kind = :kind")
+    BigDecimal sumTotal(Long userId, String kind);
+    
+    // Number of incomes and expenses the user has, without counting the rows themselves
+    @Query("SELECT SUM(r.entryCount) FROM MonthlyRollup r WHERE r.userId = :userId")
+    Long sumEntryCount(Long userId);
+    
+    @Query("SELECT r FROM MonthlyRollup r WHERE r.userId = :userId AND r.period BETWEEN :fromPeriod AND :toPeriod " +
+           "AND r.entryCount > 0 ORDER BY r.kind, r.period, r.category")
+    List<MonthlyRollup> findReport(Long userId, int fromPeriod, int toPeriod);
+    
+    List<MonthlyRollup> findByUserId(Long userId);
+    
+    // Raw sums straight from the transaction tables: kind, period, category, total, entry_count
+    @Query(value = "SELECT 'EXPENSE', " + PERIOD + ", category, SUM(amount), COUNT(*) FROM expenses " +
+            "WHERE user_id = :userId GROUP BY " + PERIOD + ", category " +
+            "UNION ALL " +
+            "SELECT 'INCOME', " + PERIOD + ", category, SUM(amount), COUNT(*) FROM incomes " +
+            "WHERE user_id = :userId GROUP BY " + PERIOD + ", category", nativeQuery = true)
+    List<Object[]> computeFromTransactions(Long userId);
+    
+    @Modifying
+    @Query(value = UPSERT + "SELECT user_id, 'EXPENSE', " + PERIOD + ", category, SUM(amount), COUNT(*) " +
+            "FROM expenses WHERE user_id = :userId GROUP BY user_id, " + PERIOD + ", category", nativeQuery = true)
+    int rebuildExpenses(Long userId);
+    
+    @Modifying
+    @Query(value = UPSERT + "SELECT user_id, 'INCOME', " + PERIOD + ", category, SUM(amount), COUNT(*) " +
+            "FROM incomes WHERE user_id = :userId GROUP BY user_id, " + PERIOD + ", category", nativeQuery = true)
+    int rebuildIncomes(Long userId);
+    
+    @Modifying
+    @Query("DELETE FROM MonthlyRollup r WHERE r.userId = :userId")
+    int deleteByUserId(Long userId);
+}
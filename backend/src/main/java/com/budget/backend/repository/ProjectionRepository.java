@@ -0,0 +1,47 @@
+package com.budget.backend.repository;
+
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+// Runs a Specification as a constructor projection, so filtered listings return DTOs
+// without creating managed entities (no persistence context entries, no dirty-checking snapshots)
+@Repository
+public class ProjectionRepository {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    // attributes are the entity attributes passed, in order, to the result class constructor; limit <= 0 means no limit
+    public <T, R> List<R> findAll(Class<T> entityClass, Class<R> resultClass, List<String> attributes,
+                                  Specification<T> spec, Sort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<R> query = cb.createQuery(resultClass);
+        Root<T> root = query.from(entityClass);
+        
+        query.select(cb.construct(resultClass, attributes.stream().map(root::get).toArray(Selection[]::new)));
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        
+        TypedQuery<R> typed = entityManager.createQuery(query);
+        if (limit > 0) {
+            typed.setMaxResults(limit);
+        }
+        return typed.getResultList();
+    }
+}
@@ -0,0 +1,44 @@
+package com.budget.backend.repository;
+
+import com.budget.backend.entity.StoredFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface StoredFileRepository extends JpaRepository<StoredFile, String> {
+    
+    // Inserts the file with one reference, or adds a reference if the content is already stored
+    @Modifying
+    @Query(value = "INSERT INTO stored_files (sha256, path, content_type, size, ref_count, created_at) " +
+            "VALUES (:sha256, :path, :contentType, :size, 1, CURRENT_TIMESTAMP) " +
+            "ON DUPLICATE KEY UPDATE ref_count = ref_count + 1, path = VALUES(path), content_type = VALUES(content_type), " +
+            "size = VALUES(size)", nativeQuery = true)
+    int addReference(String sha256, String path, String contentType, long size);
+    
+    @Modifying
+    @Query(value = "UPDATE stored_files SET ref_count = ref_count - 1 WHERE sha256 = :sha256", nativeQuery = true)
+    int removeReference(String sha256);
+    
+    // Locks the file's row, creating an unreferenced placeholder if there is none, so deleting its files
+    // can't interleave with an upload of the same content (which takes the same lock in addReference)
+    @Modifying
+    @Query(value = "INSERT INTO stored_files (sha256, path, content_type, size, ref_count, created_at) " +
+            "VALUES (:sha256, :path, '', 0, 0, CURRENT_TIMESTAMP) " +
+            "ON DUPLICATE KEY UPDATE ref_count = ref_count", nativeQuery = true)
+    int lock(String sha256, String path);
+    
+    @Query(value = "SELECT ref_count FROM stored_files WHERE sha256 = :sha256", nativeQuery = true)
+    Integer findRefCount(String sha256);
+    
+    @Query("SELECT f.sha256 FROM StoredFile f WHERE f.sha256 IN :hashes AND f.refCount > 0")
+    List<String> findReferenced(Collection<String> hashes);
+    
+    @Modifying
+    @Query(value = "DELETE FROM stored_files WHERE sha256 = :sha256 AND ref_count <= 0", nativeQuery = true)
+    int deleteIfUnreferenced(String sha256);
+}
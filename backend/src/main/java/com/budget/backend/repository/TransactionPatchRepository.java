@@ -0,0 +1,30 @@
+package com.budget.backend.repository;
+
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Map;
+
+// Set-based partial updates for the expense and income batch endpoints
+@Repository
+public class TransactionPatchRepository {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    // One UPDATE setting the same values (keyed by entity attribute name) on every listed row the user owns
+    public <T> int patch(Class<T> entityClass, Long userId, Collection<Long> ids, Map<String, Object> values) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<T> update = cb.createCriteriaUpdate(entityClass);
+        Root<T> root = update.from(entityClass);
+        values.forEach(update::set);
+        update.where(cb.equal(root.get("user").get("id"), userId), root.get("id").in(ids));
+        return entityManager.createQuery(update).executeUpdate();
+    }
+}
@@ -0,0 +1,115 @@
+package com.budget.backend.repository;
+
+
+import com.budget.backend.dto.KeysetCursor;
+import com.budget.backend.dto.TransactionFilter;
+import com.budget.backend.exception.BadRequestException;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Predicates shared by Expense and Income; both map user, date, id, amount and category the same way.
+// Everything is pushed into the SQL WHERE clause, nothing is filtered in memory.
+public final class TransactionSpecifications {
+    
+    // Keyset order; every listing that hands out a cursor must use it
+    public static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("date"), Sort.Order.desc("id"));
+    public static final Sort OLDEST_FIRST = Sort.by(Sort.Order.asc("date"), Sort.Order.asc("id"));
+    
+    private TransactionSpecifications() {
+    }
+    
+    // textAttribute is "description" for expenses and "source" for incomes
+    public static <T> Specification<T> matching(Long userId, TransactionFilter filter, String textAttribute) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.equal(root.get("user").get("id"), userId));
+            
+            if (filter.getStartDate() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.<LocalDate>get("date"), filter.getStartDate()));
+            }
+            if (filter.getEndDate() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.<LocalDate>get("date"), filter.getEndDate()));
+            }
+            if (filter.getMinAmount() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.<BigDecimal>get("amount"), filter.getMinAmount()));
+            }
+            if (filter.getMaxAmount() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.<BigDecimal>get("amount"), filter.getMaxAmount()));
+            }
+            
+            List<String> categories = nonEmpty(filter.getCategory());
+            if (categories.size() == 1) {
+                predicates.add(cb.equal(root.get("category"), categories.get(0)));
+            } else if (!categories.isEmpty()) {
+                predicates.add(root.get("category").in(categories));
+            }
+            
+            if (filter.getSearch() != null && !filter.getSearch().isBlank()) {
+                // Prefix match; % and _ in the search text are matched literally
+                String pattern = escapeLike(filter.getSearch().trim()) + "%";
+                predicates.add(cb.like(root.get(textAttribute), pattern, '\\'));
+            }
+            
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+    
+    public static Sort sortOf(TransactionFilter filter) {
+        String sort = filter.getSort();
+        if (sort == null || sort.isEmpty() || sort.equals("date_desc")) {
+            return NEWEST_FIRST;
+        }
+        switch (sort) {
+            case "date_asc":
+                return OLDEST_FIRST;
+            case "amount_desc":
+                return Sort.by(Sort.Order.desc("amount"), Sort.Order.desc("id"));
+            case "amount_asc":
+                return Sort.by(Sort.Order.asc("amount"), Sort.Order.asc("id"));
+            default:
+                throw new BadRequestException("Unsupported sort: " + sort);
+        }
+    }
+    
+    // Rows strictly after the cursor in the given date order
+    public static <T> Specification<T> after(KeysetCursor cursor, Sort sort) {
+        return (root, query, cb) -> {
+            if (cursor == null) {
+                return null;
+            }
+            if (sort.equals(NEWEST_FIRST)) {
+                return cb.or(
+                        cb.lessThan(root.<LocalDate>get("date"), cursor.date()),
+                        cb.and(cb.equal(root.get("date"), cursor.date()), cb.lessThan(root.<Long>get("id"), cursor.id())));
+            }
+            if (sort.equals(OLDEST_FIRST)) {
+                return cb.or(
+                        cb.greaterThan(root.<LocalDate>get("date"), cursor.date()),
+                        cb.and(cb.equal(root.get("date"), cursor.date()), cb.greaterThan(root.<Long>get("id"), cursor.id())));
+            }
+            throw new BadRequestException("Paging is only supported when sorting by date");
+        };
+    }
+    
+    private static List<String> nonEmpty(List<String> values) {
+        List<String> result = new ArrayList<>();
+        if (values != null) {
+            for (String value : values) {
+                if (value != null && !value.isBlank()) {
+                    result.add(value.trim());
+                }
+            }
+        }
+        return result;
+    }
+    
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,64 @@
+package com.budget.backend.repository;
+
+
+import com.budget.backend.dto.KeysetCursor;
+import com.budget.backend.dto.TransactionResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Incomes and expenses merged into one (date desc, id desc, type desc) timeline by the database.
+// Each branch walks the (user_id, date, id) index and stops after limit rows, so a page never
+// reads more than 2 * limit rows no matter how deep it is.
+@Repository
+public class TransactionTimelineRepository {
+    
+    private static final String BRANCH =
+            "(SELECT id, '%1$s' AS type, amount, category, %2$s AS description, date, note FROM %3$s " +
+            "WHERE user_id = :userId%4$s ORDER BY date DESC, id DESC LIMIT :limit)";
+    
+    // Rows strictly after the cursor; the constant type comparison settles date and id ties between tables
+    private static final String AFTER =
+            " AND (date < :date OR (date = :date AND (id < :id OR (id = :id AND '%1$s' < :type))))";
+    
+    private static final RowMapper<TransactionResponse> ROW_MAPPER = (rs, rowNum) -> new TransactionResponse(
+            rs.getLong("id"),
+            rs.getString("type"),
+            rs.getBigDecimal("amount"),
+            rs.getString("category"),
+            rs.getString("description"),
+            rs.getObject("date", LocalDate.class),
+            rs.getString("note")
+    );
+    
+    @Autowired
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    
+    public List<TransactionResponse> findPage(Long userId, KeysetCursor after, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("userId", userId)
+                .addValue("limit", limit);
+        if (after != null) {
+            params.addValue("date", after.date())
+                    .addValue("id", after.id())
+                    .addValue("type", after.type() != null ? after.type() : "");
+        }
+        
+        String sql = "SELECT * FROM (" +
+                branch("income", "source", "incomes", after) +
+                " UNION ALL " +
+                branch("expense", "description", "expenses", after) +
+                ") timeline ORDER BY date DESC, id DESC, type DESC LIMIT :limit";
+        return jdbcTemplate.query(sql, params, ROW_MAPPER);
+    }
+    
+    private static String branch(String type, String descriptionColumn, String table, KeysetCursor after) {
+        String keyset = after != null ? String.format(AFTER, type) : "";
+        return String.format(BRANCH, type, descriptionColumn, table, keyset);
+    }
+}
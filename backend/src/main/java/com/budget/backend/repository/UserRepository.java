@@ -1,13 +1,46 @@
 package com.budget.backend.repository;
 
 
+import com.budget.backend.dto.UserResponse;
 import com.budget.backend.entity.User;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+    
+    // SELECT ... FOR UPDATE: the row stays locked until the caller's transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id = :id")
+    Optional<User> findByIdForUpdate(Long id);
+    
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.email = :email")
+    Optional<User> findByEmailForUpdate(String email);
+    
+    @Query("SELECT new com.budget.backend.dto.UserResponse(u.id, u.name, u.email, u.profilePhoto, u.currency, u.role, u.createdAt) " +
+           "FROM User u WHERE u.id = :id")
+    Optional<UserResponse> findResponseById(Long id);
+    
     boolean existsByEmail(String email);
+    
+    @Query("SELECT u.id FROM User u WHERE u.id > :afterId ORDER BY u.id")
+    List<Long> findIdsAfter(Long afterId, Pageable pageable);
+    
+    // Which of the given upload paths some user still has as their profile photo
+    @Query("SELECT DISTINCT u.profilePhoto FROM User u WHERE u.profilePhoto IN :paths")
+    List<String> findProfilePhotosIn(Collection<String> paths);
+    
+    @Modifying
+    @Query("DELETE FROM User u WHERE u.id = :id")
+    int deleteUserById(Long id);
 }
@@ -1,6 +1,10 @@
 package com.budget.backend.security;
 
 
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
@@ -9,7 +13,6 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
@@ -26,25 +29,62 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private CustomUserDetailsService customUserDetailsService;
     
+    @Autowired
+    private PrincipalCache principalCache;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    // Time spent authenticating the request (not the rest of the chain), split into token
+    // verification and the principal lookup (cache hit, or a users table query on a miss)
+    private Timer verifyTimer;
+    private Timer lookupTimer;
+    private Timer loadTimer;
+    
+    @PostConstruct
+    void initMetrics() {
+        verifyTimer = Timer.builder("auth.jwt.verify").register(meterRegistry);
+        lookupTimer = Timer.builder("auth.jwt.principal.lookup").register(meterRegistry);
+        loadTimer = Timer.builder("auth.jwt.principal.load").register(meterRegistry);
+    }
+    
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "anonymous";
         try {
             String jwt = getJwtFromRequest(request);
             
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String username = tokenProvider.getUsernameFromToken(jwt);
+            Claims claims = StringUtils.hasText(jwt) ? verifyTimer.record(() -> tokenProvider.verify(jwt)) : null;
+            if (StringUtils.hasText(jwt) && claims == null) {
+                outcome = "invalid_token";
+            }
+            
+            if (claims != null) {
+                String username = claims.getSubject();
                 
-                UserDetails userDetails = customUserDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        userDetails, null, userDetails.getAuthorities());
-                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                AuthenticatedUser principal = lookupTimer.record(() -> principalCache.getOrLoad(username,
+                        name -> loadTimer.record(() -> customUserDetailsService.loadAuthenticatedUser(name))));
                 
-                SecurityContextHolder.getContext().setAuthentication(authentication);
+                // Reject tokens issued to an earlier account that held the same email
+                Long tokenUserId = tokenProvider.getUserId(claims);
+                if (tokenUserId == null || tokenUserId.equals(principal.getId())) {
+                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                            principal, null, principal.getAuthorities());
+                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    
+                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                    outcome = "authenticated";
+                } else {
+                    outcome = "stale_token";
+                }
             }
         } catch (Exception ex) {
+            outcome = "error";
             logger.error("Could not set user authentication in security context", ex);
         }
+        sample.stop(meterRegistry.timer("auth.jwt.filter", "outcome", outcome));
         
         filterChain.doFilter(request, response);
     }
@@ -1,6 +1,8 @@
 package com.budget.backend.security;
 
 
+import com.budget.backend.cache.BoundedTtlCache;
+import com.budget.backend.cache.CacheStats;
 import com.budget.backend.config.JwtConfig;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
@@ -8,18 +10,36 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Date;
 
 @Component
 public class JwtTokenProvider {
     
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+    
+    private static final int VERIFIED_CACHE_SIZE = 10000;
+    
     private final JwtConfig jwtConfig;
     private final Key key;
+    private final JwtParser parser;
+    
+    // Tokens whose signature has already been checked, keyed by a digest of the token
+    private final BoundedTtlCache<String, Claims> verifiedTokens;
     
     public JwtTokenProvider(JwtConfig jwtConfig) {
         this.jwtConfig = jwtConfig;
         this.key = Keys.hmacShaKeyFor(jwtConfig.getSecret().getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
+        this.verifiedTokens = new BoundedTtlCache<>(VERIFIED_CACHE_SIZE, Duration.ofMillis(jwtConfig.getExpiration()));
     }
     
     public String generateToken(Authentication authentication) {
@@ -27,33 +47,73 @@ public class JwtTokenProvider {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtConfig.getExpiration());
         
-        return Jwts.builder()
-                .setSubject(userDetails.getUsername())
+        JwtBuilder builder = Jwts.builder()
+                .setSubject(userDetails.getUsername());
+        
+        if (userDetails instanceof AuthenticatedUser user) {
+            builder.claim(USER_ID_CLAIM, user.getId())
+                    .claim(ROLE_CLAIM, user.getRole());
+        }
+        
+        return builder
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
                 .signWith(key, SignatureAlgorithm.HS512)
                 .compact();
     }
     
+    // Parses and verifies the token once, returning its claims, or null if the token is invalid or expired
+    public Claims verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        
+        String digest = digest(token);
+        Claims cached = verifiedTokens.get(digest);
+        if (cached != null) {
+            return cached;
+        }
+        
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Date expiration = claims.getExpiration();
+            verifiedTokens.put(digest, claims, expiration != null ? expiration.getTime() : Long.MAX_VALUE);
+            return claims;
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    // Tokens issued before the id claim was added don't carry it
+    public Long getUserId(Claims claims) {
+        Object uid = claims.get(USER_ID_CLAIM);
+        return uid instanceof Number number ? number.longValue() : null;
+    }
+    
     public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(key)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        Claims claims = verify(token);
+        if (claims == null) {
+            throw new JwtException("Invalid JWT token");
+        }
         
         return claims.getSubject();
     }
     
     public boolean validateToken(String token) {
+        return verify(token) != null;
+    }
+    
+    public CacheStats verifiedTokenStats() {
+        return verifiedTokens.stats();
+    }
+    
+    private static String digest(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(key)
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hash = md.digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
 }
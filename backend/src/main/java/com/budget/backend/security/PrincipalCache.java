@@ -0,0 +1,38 @@
+package com.budget.backend.security;
+
+
+import com.budget.backend.cache.BoundedTtlCache;
+import com.budget.backend.cache.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+// Keeps recently authenticated principals in memory, keyed by the token subject (email),
+// so the JWT filter doesn't query the users table on every request.
+@Component
+public class PrincipalCache {
+    
+    private final BoundedTtlCache<String, AuthenticatedUser> cache;
+    
+    public PrincipalCache(@Value("${app.security.principal-cache.max-size:10000}") int maxSize,
+                          @Value("${app.security.principal-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.cache = new BoundedTtlCache<>(maxSize, Duration.ofSeconds(ttlSeconds));
+    }
+    
+    public AuthenticatedUser getOrLoad(String username, Function<String, AuthenticatedUser> loader) {
+        return cache.getOrLoad(username, loader);
+    }
+    
+    // Must be called whenever the credentials, email or existence of an account change
+    public void evict(String username) {
+        if (username != null) {
+            cache.invalidate(username);
+        }
+    }
+    
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
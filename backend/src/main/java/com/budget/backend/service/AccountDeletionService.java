@@ -0,0 +1,144 @@
+package com.budget.backend.service;
+
+
+import com.budget.backend.entity.User;
+import com.budget.backend.exception.ResourceNotFoundException;
+import com.budget.backend.exception.TooManyRequestsException;
+import com.budget.backend.repository.ExpenseRepository;
+import com.budget.backend.repository.IncomeRepository;
+import com.budget.backend.repository.MonthlyRollupRepository;
+import com.budget.backend.repository.UserRepository;
+import com.budget.backend.security.PrincipalCache;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+// Deletes an account with set-based statements: the user's incomes and expenses go in chunks of
+// app.account-deletion.chunk-size, each in its own short transaction, and the user row last. Nothing
+// of the user's history is loaded into the persistence context.
+@Service
+public class AccountDeletionService {
+    
+    private static final Logger log = LoggerFactory.getLogger(AccountDeletionService.class);
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private ExpenseRepository expenseRepository;
+    
+    @Autowired
+    private IncomeRepository incomeRepository;
+    
+    @Autowired
+    private MonthlyRollupRepository monthlyRollupRepository;
+    
+    @Autowired
+    private FileUploadService fileUploadService;
+    
+    @Autowired
+    private PrincipalCache principalCache;
+    
+    @Autowired
+    private DashboardCache dashboardCache;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Value("${app.account-deletion.chunk-size:5000}")
+    private int chunkSize;
+    
+    @Value("${app.account-deletion.queue-capacity:100}")
+    private int queueCapacity;
+    
+    private ThreadPoolExecutor executor;
+    
+    @PostConstruct
+    void init() {
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "account-deletion");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+    
+    public void delete(Long userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        
+        long expenses = deleteInChunks(page -> expenseRepository.findIdsByUserId(userId, page),
+                ids -> expenseRepository.deleteByUserIdAndIdIn(userId, ids));
+        long incomes = deleteInChunks(page -> incomeRepository.findIdsByUserId(userId, page),
+                ids -> incomeRepository.deleteByUserIdAndIdIn(userId, ids));
+        
+        transactionTemplate.executeWithoutResult(status -> {
+            // Anything added while the chunks were running
+            expenseRepository.deleteByUserId(userId);
+            incomeRepository.deleteByUserId(userId);
+            
+            // Rollups reference the user but are not mapped on it, so they are removed explicitly
+            monthlyRollupRepository.deleteByUserId(userId);
+            userRepository.findById(userId)
+                    .map(User::getProfilePhoto)
+                    .ifPresent(fileUploadService::deleteFile);
+            userRepository.deleteUserById(userId);
+        });
+        
+        principalCache.evict(user.getEmail());
+        dashboardCache.invalidate(userId);
+        log.info("Deleted account {} ({} expenses, {} incomes)", userId, expenses, incomes);
+    }
+    
+    // Runs the deletion in the background; the account is gone once it finishes
+    public void deleteAsync(Long userId) {
+        if (!userRepository.existsById(userId)) {
+            throw new ResourceNotFoundException("User not found");
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    delete(userId);
+                } catch (RuntimeException e) {
+                    log.error("Deleting account {} failed", userId, e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new TooManyRequestsException("Too many account deletions in progress, please try again later");
+        }
+    }
+    
+    private long deleteInChunks(Function<Pageable, List<Long>> findIds, ToIntFunction<List<Long>> deleteIds) {
+        Pageable page = PageRequest.ofSize(chunkSize);
+        long deleted = 0;
+        List<Long> ids;
+        do {
+            ids = findIds.apply(page);
+            if (!ids.isEmpty()) {
+                List<Long> chunk = ids;
+                deleted += transactionTemplate.execute(status -> deleteIds.applyAsInt(chunk));
+            }
+        } while (ids.size() == chunkSize);
+        return deleted;
+    }
+}
@@ -0,0 +1,88 @@
+package com.budget.backend.service;
+
+
+import com.budget.backend.cache.BoundedTtlCache;
+import com.budget.backend.cache.CacheStats;
+import com.budget.backend.dto.DashboardResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+// Per-user dashboard responses, each tagged with the data version it was built from.
+// Every income/expense write and currency change must call invalidate(userId).
+@Component
+public class DashboardCache {
+    
+    private static final int STRIPES = 1024;
+    
+    private final BoundedTtlCache<Long, Entry> cache;
+    
+    // A version is only ever handed out once per process; the epoch keeps ETags from an earlier run from matching
+    private final String epoch = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+    private final AtomicLong versions = new AtomicLong();
+    
+    // Bumped on every invalidation so a load that raced with a write is not cached
+    private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+    
+    public DashboardCache(@Value("${app.dashboard.cache.max-size:10000}") int maxSize,
+                          @Value("${app.dashboard.cache.ttl-seconds:600}") long ttlSeconds) {
+        this.cache = new BoundedTtlCache<>(maxSize, Duration.ofSeconds(ttlSeconds));
+    }
+    
+    // Current ETag for the user, or null when nothing is cached; never touches the database
+    public String currentETag(Long userId) {
+        Entry entry = cache.get(userId);
+        return entry != null ? entry.etag() : null;
+    }
+    
+    public Entry getOrLoad(Long userId, Supplier<DashboardResponse> loader) {
+        Entry entry = cache.get(userId);
+        if (entry != null) {
+            return entry;
+        }
+        
+        long generation = generations.get(stripe(userId));
+        entry = new Entry("\"" + epoch + "-" + versions.incrementAndGet() + "\"", loader.get());
+        if (generations.get(stripe(userId)) == generation) {
+            cache.put(userId, entry);
+        }
+        return entry;
+    }
+    
+    // Drops the user's entry now and again once the surrounding transaction commits, so a read
+    // that saw the old rows while the write was in flight can't put a stale response back
+    public void invalidate(Long userId) {
+        evict(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(userId);
+                }
+            });
+        }
+    }
+    
+    public CacheStats stats() {
+        return cache.stats();
+    }
+    
+    private void evict(Long userId) {
+        generations.incrementAndGet(stripe(userId));
+        cache.invalidate(userId);
+    }
+    
+    private static int stripe(Long userId) {
+        return (int) Math.floorMod(userId, (long) STRIPES);
+    }
+    
+    public record Entry(String etag, DashboardResponse response) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.budget.backend.service;
+
+
+import com.budget.backend.config.ReadWriteRoutingDataSource;
+import com.budget.backend.dto.DashboardResponse;
+import com.budget.backend.dto.TransactionResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Service
+public class DashboardService {
+    
+    @Autowired
+    private DashboardCache dashboardCache;
+    
+    @Autowired
+    private IncomeService incomeService;
+    
+    @Autowired
+    private ExpenseService expenseService;
+    
+    @Autowired
+    private TransactionService transactionService;
+    
+    // Built on the primary: a replica may not have the write that just invalidated the entry yet, and a
+    // stale dashboard built from it would be cached and served under a fresh ETag for the whole TTL
+    @Transactional(readOnly = true)
+    public DashboardCache.Entry getDashboard(Long userId) {
+        return dashboardCache.getOrLoad(userId, () -> ReadWriteRoutingDataSource.onPrimary(() -> buildDashboard(userId)));
+    }
+    
+    public String currentETag(Long userId) {
+        return dashboardCache.currentETag(userId);
+    }
+    
+    private DashboardResponse buildDashboard(Long userId) {
+        BigDecimal totalIncome = incomeService.getTotalIncome(userId);
+        BigDecimal totalExpense = expenseService.getTotalExpense(userId);
+        BigDecimal balance = totalIncome.subtract(totalExpense);
+        
+        // Same query as the /api/transactions timeline, first page only
+        List<TransactionResponse> transactions = transactionService.getRecentTransactions(userId, 5);
+        
+        return new DashboardResponse(totalIncome, totalExpense, balance, transactions);
+    }
+}
@@ -1,100 +1,341 @@
 package com.budget.backend.service;
 
 
+import com.budget.backend.dto.BatchResult;
+import com.budget.backend.dto.ExpensePatchRequest;
 import com.budget.backend.dto.ExpenseRequest;
+import com.budget.backend.dto.ExpenseResponse;
+import com.budget.backend.dto.KeysetCursor;
+import com.budget.backend.dto.PageResponse;
+import com.budget.backend.dto.TransactionFilter;
 import com.budget.backend.entity.Expense;
+import com.budget.backend.entity.MonthlyRollup;
 import com.budget.backend.entity.User;
+import com.budget.backend.exception.BadRequestException;
 import com.budget.backend.exception.ResourceNotFoundException;
 import com.budget.backend.repository.ExpenseRepository;
+import com.budget.backend.repository.ProjectionRepository;
+import com.budget.backend.repository.TransactionPatchRepository;
+import com.budget.backend.repository.TransactionSpecifications;
 import com.budget.backend.repository.UserRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class ExpenseService {
     
+    // ExpenseResponse constructor arguments, in order
+    private static final List<String> RESPONSE_ATTRIBUTES = List.of("id", "amount", "category", "description", "date", "note", "createdAt");
+    
     @Autowired
     private ExpenseRepository expenseRepository;
     
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private MonthlyRollupService monthlyRollupService;
+    
+    @Autowired
+    private DashboardCache dashboardCache;
+    
+    @Autowired
+    private TransactionPatchRepository transactionPatchRepository;
+    
+    @Autowired
+    private ProjectionRepository projectionRepository;
+    
+    @Autowired
+    private Validator validator;
+    
     public Expense createExpense(String email, ExpenseRequest request) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        return createExpense(getUserId(email), request);
+    }
+    
+    @Transactional
+    public Expense createExpense(Long userId, ExpenseRequest request) {
+        // Reference only; the user row is not loaded just to set the foreign key
+        User user = userRepository.getReferenceById(userId);
         
-        Expense expense = new Expense();
-        expense.setAmount(request.getAmount());
-        expense.setCategory(request.getCategory());
-        expense.setDescription(request.getDescription());
-        expense.setDate(request.getDate());
-        expense.setNote(request.getNote());
-        expense.setUser(user);
+        Expense saved = expenseRepository.save(toExpense(request, user));
+        monthlyRollupService.recordExpense(userId, saved.getDate(), saved.getCategory(), saved.getAmount());
+        dashboardCache.invalidate(userId);
+        return saved;
+    }
+    
+    // Valid items are inserted together in one transaction (JDBC-batched); invalid ones are reported per item
+    @Transactional
+    public BatchResult createExpenses(Long userId, List<ExpenseRequest> requests) {
+        BatchResult.checkSize(requests);
+        BatchResult result = BatchResult.ofSize(requests.size());
+        User user = userRepository.getReferenceById(userId);
         
-        return expenseRepository.save(expense);
+        List<Expense> expenses = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            String error = validate(requests.get(i));
+            if (error != null) {
+                result.failure(i, null, BatchResult.INVALID, error);
+                continue;
+            }
+            expenses.add(toExpense(requests.get(i), user));
+            indexes.add(i);
+        }
+        if (expenses.isEmpty()) {
+            return result;
+        }
+        
+        expenseRepository.saveAllAndFlush(expenses);
+        List<Long> ids = expenses.stream().map(Expense::getId).toList();
+        monthlyRollupService.addExpenses(userId, ids);
+        dashboardCache.invalidate(userId);
+        
+        for (int n = 0; n < ids.size(); n++) {
+            result.success(indexes.get(n), ids.get(n), BatchResult.CREATED);
+        }
+        return result;
     }
     
-    public List<Expense> getAllExpenses(String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    // Items that set the same values (e.g. recategorizing many rows) share one UPDATE
+    @Transactional
+    public BatchResult updateExpenses(Long userId, List<ExpensePatchRequest> patches) {
+        BatchResult.checkSize(patches);
+        BatchResult result = BatchResult.ofSize(patches.size());
+        
+        Map<Long, Integer> indexById = new LinkedHashMap<>();
+        for (int i = 0; i < patches.size(); i++) {
+            String error = validate(patches.get(i));
+            if (error == null && indexById.containsKey(patches.get(i).getId())) {
+                error = "Duplicate id in batch";
+            }
+            if (error != null) {
+                result.failure(i, patches.get(i) != null ? patches.get(i).getId() : null, BatchResult.INVALID, error);
+            } else {
+                indexById.put(patches.get(i).getId(), i);
+            }
+        }
+        Set<Long> owned = ownedIds(userId, indexById, result);
+        if (owned.isEmpty()) {
+            return result;
+        }
+        
+        Map<Map<String, Object>, List<Long>> groups = new LinkedHashMap<>();
+        for (Long id : owned) {
+            Map<String, Object> values = changedValues(patches.get(indexById.get(id)));
+            if (!values.isEmpty()) {
+                groups.computeIfAbsent(values, v -> new ArrayList<>()).add(id);
+            }
+        }
+        
+        monthlyRollupService.removeExpenses(userId, owned);
+        groups.forEach((values, ids) -> transactionPatchRepository.patch(Expense.class, userId, ids, values));
+        monthlyRollupService.addExpenses(userId, owned);
+        dashboardCache.invalidate(userId);
         
-        return expenseRepository.findByUserIdOrderByDateDesc(user.getId());
+        for (Long id : owned) {
+            result.success(indexById.get(id), id, BatchResult.UPDATED);
+        }
+        return result;
     }
     
-    public List<Expense> getFilteredExpenses(String email, LocalDate startDate, LocalDate endDate, String category) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    @Transactional
+    public BatchResult deleteExpenses(Long userId, List<Long> ids) {
+        BatchResult.checkSize(ids);
+        BatchResult result = BatchResult.ofSize(ids.size());
+        
+        Map<Long, Integer> indexById = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i) == null) {
+                result.failure(i, null, BatchResult.INVALID, "Id is required");
+            } else if (indexById.containsKey(ids.get(i))) {
+                result.failure(i, ids.get(i), BatchResult.INVALID, "Duplicate id in batch");
+            } else {
+                indexById.put(ids.get(i), i);
+            }
+        }
+        Set<Long> owned = ownedIds(userId, indexById, result);
+        if (owned.isEmpty()) {
+            return result;
+        }
+        
+        monthlyRollupService.removeExpenses(userId, owned);
+        expenseRepository.deleteByUserIdAndIdIn(userId, owned);
+        dashboardCache.invalidate(userId);
         
-        if (startDate != null && endDate != null && category != null && !category.isEmpty()) {
-            return expenseRepository.findByUserIdAndDateBetweenAndCategoryOrderByDateDesc(
-                    user.getId(), startDate, endDate, category);
-        } else if (startDate != null && endDate != null) {
-            return expenseRepository.findByUserIdAndDateBetweenOrderByDateDesc(
-                    user.getId(), startDate, endDate);
-        } else if (category != null && !category.isEmpty()) {
-            return expenseRepository.findByUserIdAndCategoryOrderByDateDesc(user.getId(), category);
-        } else {
-            return expenseRepository.findByUserIdOrderByDateDesc(user.getId());
+        for (Long id : owned) {
+            result.success(indexById.get(id), id, BatchResult.DELETED);
         }
+        return result;
     }
     
-    public Expense getExpenseById(String email, Long id) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    @Transactional(readOnly = true)
+    public List<ExpenseResponse> getAllExpenses(String email) {
+        return getAllExpenses(getUserId(email));
+    }
+    
+    @Transactional(readOnly = true)
+    public List<ExpenseResponse> getAllExpenses(Long userId) {
+        return expenseRepository.findResponsesByUserId(userId);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<ExpenseResponse> getFilteredExpenses(String email, LocalDate startDate, LocalDate endDate, String category) {
+        return getFilteredExpenses(getUserId(email), startDate, endDate, category);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<ExpenseResponse> getFilteredExpenses(Long userId, LocalDate startDate, LocalDate endDate, String category) {
+        return getFilteredExpenses(userId, TransactionFilter.of(startDate, endDate, category));
+    }
+    
+    @Transactional(readOnly = true)
+    public List<ExpenseResponse> getFilteredExpenses(Long userId, TransactionFilter filter) {
+        return projectionRepository.findAll(Expense.class, ExpenseResponse.class, RESPONSE_ATTRIBUTES,
+                TransactionSpecifications.matching(userId, filter, "description"), TransactionSpecifications.sortOf(filter), 0);
+    }
+    
+    // Keyset page in date order; deep pages cost the same as the first one
+    @Transactional(readOnly = true)
+    public PageResponse<ExpenseResponse> getExpensePage(Long userId, TransactionFilter filter, String cursor, Integer limit) {
+        int pageSize = PageResponse.clampLimit(limit);
+        Sort sort = TransactionSpecifications.sortOf(filter);
+        if (!sort.equals(TransactionSpecifications.NEWEST_FIRST) && !sort.equals(TransactionSpecifications.OLDEST_FIRST)) {
+            throw new BadRequestException("Paging is only supported when sorting by date");
+        }
         
-        Expense expense = expenseRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Expense not found"));
+        Specification<Expense> spec = TransactionSpecifications.<Expense>matching(userId, filter, "description")
+                .and(TransactionSpecifications.after(KeysetCursor.decode(cursor), sort));
         
-        if (!expense.getUser().getId().equals(user.getId())) {
+        List<ExpenseResponse> rows = projectionRepository.findAll(Expense.class, ExpenseResponse.class, RESPONSE_ATTRIBUTES,
+                spec, sort, pageSize + 1);
+        return PageResponse.of(rows, pageSize, expense -> new KeysetCursor(expense.getDate(), expense.getId()));
+    }
+    
+    @Transactional(readOnly = true)
+    public ExpenseResponse getExpenseById(String email, Long id) {
+        return getExpenseById(getUserId(email), id);
+    }
+    
+    @Transactional(readOnly = true)
+    public ExpenseResponse getExpenseById(Long userId, Long id) {
+        return expenseRepository.findResponseByIdAndUserId(id, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Expense not found"));
+    }
+    
+    public ExpenseResponse updateExpense(String email, Long id, ExpenseRequest request) {
+        return updateExpense(getUserId(email), id, request);
+    }
+    
+    @Transactional
+    public ExpenseResponse updateExpense(Long userId, Long id, ExpenseRequest request) {
+        // Take the old values out of the rollups before the row changes, then add the new ones back
+        monthlyRollupService.removeExpenses(userId, List.of(id));
+        int updated = expenseRepository.updateByIdAndUserId(id, userId, request.getAmount(), request.getCategory(),
+                request.getDescription(), request.getDate(), request.getNote());
+        if (updated == 0) {
             throw new ResourceNotFoundException("Expense not found");
         }
+        monthlyRollupService.addExpenses(userId, List.of(id));
+        dashboardCache.invalidate(userId);
         
-        return expense;
+        // Read back for the response body
+        return getExpenseById(userId, id);
     }
     
-    public Expense updateExpense(String email, Long id, ExpenseRequest request) {
-        Expense expense = getExpenseById(email, id);
-        
+    public void deleteExpense(String email, Long id) {
+        deleteExpense(getUserId(email), id);
+    }
+    
+    @Transactional
+    public void deleteExpense(Long userId, Long id) {
+        monthlyRollupService.removeExpenses(userId, List.of(id));
+        if (expenseRepository.deleteByIdAndUserId(id, userId) == 0) {
+            throw new ResourceNotFoundException("Expense not found");
+        }
+        dashboardCache.invalidate(userId);
+    }
+    
+    public BigDecimal getTotalExpense(Long userId) {
+        return monthlyRollupService.getTotal(userId, MonthlyRollup.EXPENSE);
+    }
+    
+    private static Expense toExpense(ExpenseRequest request, User user) {
+        Expense expense = new Expense();
         expense.setAmount(request.getAmount());
         expense.setCategory(request.getCategory());
         expense.setDescription(request.getDescription());
         expense.setDate(request.getDate());
         expense.setNote(request.getNote());
-        
-        return expenseRepository.save(expense);
+        expense.setUser(user);
+        return expense;
     }
     
-    public void deleteExpense(String email, Long id) {
-        Expense expense = getExpenseById(email, id);
-        expenseRepository.delete(expense);
+    // Ids in the batch that exist and belong to the user; the rest are marked not found
+    private Set<Long> ownedIds(Long userId, Map<Long, Integer> indexById, BatchResult result) {
+        if (indexById.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> owned = new LinkedHashSet<>(expenseRepository.findIdsByUserIdAndIdIn(userId, indexById.keySet()));
+        indexById.forEach((id, index) -> {
+            if (!owned.contains(id)) {
+                result.failure(index, id, BatchResult.NOT_FOUND, "Expense not found");
+            }
+        });
+        return owned;
     }
     
-    public BigDecimal getTotalExpense(Long userId) {
-        BigDecimal total = expenseRepository.getTotalExpenseByUserId(userId);
-        return total != null ? total : BigDecimal.ZERO;
+    private static Map<String, Object> changedValues(ExpensePatchRequest patch) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (patch.getAmount() != null) {
+            values.put("amount", patch.getAmount());
+        }
+        if (patch.getCategory() != null) {
+            values.put("category", patch.getCategory());
+        }
+        if (patch.getDescription() != null) {
+            values.put("description", patch.getDescription());
+        }
+        if (patch.getDate() != null) {
+            values.put("date", patch.getDate());
+        }
+        if (patch.getNote() != null) {
+            values.put("note", patch.getNote());
+        }
+        return values;
+    }
+    
+    private String validate(Object item) {
+        if (item == null) {
+            return "Item is required";
+        }
+        Set<ConstraintViolation<Object>> violations = validator.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+    
+    private Long getUserId(String email) {
+        return userRepository.findByEmail(email)
+                .map(User::getId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
     }
 }
@@ -0,0 +1,90 @@
+package com.budget.backend.service;
+
+
+import com.budget.backend.dto.ExportJobResponse;
+import lombok.Getter;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+// State of one background export; updated by the worker thread and read by status requests
+@Getter
+public class ExportJob {
+    
+    public enum Status { QUEUED, RUNNING, DONE, FAILED }
+    
+    private final String id;
+    private final Long userId;
+    private final boolean gzip;
+    private final long totalRows;
+    private final Path file;
+    private final LocalDateTime createdAt = LocalDateTime.now();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    
+    private volatile Status status = Status.QUEUED;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+    
+    public ExportJob(String id, Long userId, boolean gzip, long totalRows, Path file) {
+        this.id = id;
+        this.userId = userId;
+        this.gzip = gzip;
+        this.totalRows = totalRows;
+        this.file = file;
+    }
+    
+    public String getFileName() {
+        return gzip ? "transactions.csv.gz" : "transactions.csv";
+    }
+    
+    public String getContentType() {
+        return gzip ? "application/gzip" : "text/csv";
+    }
+    
+    public boolean isActive() {
+        return status == Status.QUEUED || status == Status.RUNNING;
+    }
+    
+    void started() {
+        status = Status.RUNNING;
+    }
+    
+    void finished() {
+        finishedAt = LocalDateTime.now();
+        status = Status.DONE;
+    }
+    
+    void failed(String message) {
+        finishedAt = LocalDateTime.now();
+        error = message;
+        status = Status.FAILED;
+    }
+    
+    public ExportJobResponse toResponse(long ttlMinutes, Long sizeBytes) {
+        long written = rowsWritten.get();
+        int progress;
+        if (status == Status.DONE) {
+            progress = 100;
+        } else if (totalRows == 0) {
+            progress = 0;
+        } else {
+            // The total is an estimate; rows added after submission can push the count past it
+            progress = (int) Math.min(99, written * 100 / totalRows);
+        }
+        
+        return new ExportJobResponse(
+                id,
+                status.name().toLowerCase(),
+                written,
+                totalRows,
+                progress,
+                sizeBytes,
+                createdAt,
+                finishedAt,
+                finishedAt != null ? finishedAt.plusMinutes(ttlMinutes) : null,
+                error,
+                status == Status.DONE ? "/api/exports/" + id + "/download" : null
+        );
+    }
+}
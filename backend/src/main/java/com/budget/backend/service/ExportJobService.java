@@ -0,0 +1,180 @@
+package com.budget.backend.service;
+
+
+import com.budget.backend.exception.ResourceNotFoundException;
+import com.budget.backend.exception.TooManyRequestsException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs CSV exports in the background, writing them to app.export.dir so large histories don't hold a
+// request thread (and a database cursor) for the whole download. Finished files are kept for
+// app.export.ttl-minutes. Jobs live in memory only; a restart drops them along with their files.
+@Service
+public class ExportJobService {
+    
+    private static final Logger log = LoggerFactory.getLogger(ExportJobService.class);
+    
+    @Autowired
+    private TransactionExportService transactionExportService;
+    
+    @Autowired
+    private MonthlyRollupService monthlyRollupService;
+    
+    @Value("${app.export.dir:exports}")
+    private String exportDir;
+    
+    @Value("${app.export.max-concurrent:2}")
+    private int maxConcurrent;
+    
+    @Value("${app.export.queue-capacity:20}")
+    private int queueCapacity;
+    
+    @Value("${app.export.ttl-minutes:60}")
+    private long ttlMinutes;
+    
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+    // The queued or running job of each user
+    private final Map<Long, ExportJob> activeJobs = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor executor;
+    private Path directory;
+    
+    @PostConstruct
+    void init() throws IOException {
+        directory = Paths.get(exportDir).toAbsolutePath();
+        Files.createDirectories(directory);
+        
+        // Files left by a previous run have no job pointing at them any more
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory, "*.{csv,gz,part}")) {
+            for (Path file : leftovers) {
+                Files.deleteIfExists(file);
+            }
+        }
+        
+        AtomicInteger threads = new AtomicInteger();
+        executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "export-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    public ExportJob submit(Long userId, boolean gzip) {
+        String id = UUID.randomUUID().toString();
+        Path file = directory.resolve(id + (gzip ? ".csv.gz" : ".csv"));
+        ExportJob candidate = new ExportJob(id, userId, gzip, monthlyRollupService.countTransactions(userId), file);
+        
+        // One export at a time per user; asking again (even concurrently) just returns the one in flight
+        ExportJob job = activeJobs.compute(userId,
+                (user, current) -> current != null && current.isActive() ? current : candidate);
+        if (job != candidate) {
+            return job;
+        }
+        jobs.put(id, job);
+        
+        try {
+            executor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(id);
+            activeJobs.remove(userId, job);
+            throw new TooManyRequestsException("Too many exports in progress, please try again later");
+        }
+        return job;
+    }
+    
+    public ExportJob getJob(Long userId, String id) {
+        ExportJob job = jobs.get(id);
+        if (job == null || !job.getUserId().equals(userId)) {
+            throw new ResourceNotFoundException("Export not found");
+        }
+        return job;
+    }
+    
+    public long getTtlMinutes() {
+        return ttlMinutes;
+    }
+    
+    public Long getSize(ExportJob job) {
+        if (job.getStatus() != ExportJob.Status.DONE) {
+            return null;
+        }
+        try {
+            return Files.size(job.getFile());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    private void run(ExportJob job) {
+        job.started();
+        Path part = job.getFile().resolveSibling(job.getFile().getFileName() + ".part");
+        try {
+            try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 OutputStream out = Channels.newOutputStream(channel)) {
+                transactionExportService.writeCsv(job.getUserId(), out, job.isGzip(), job.getRowsWritten());
+                channel.force(false);
+            }
+            // Downloads only ever see a complete file
+            Files.move(part, job.getFile(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            job.finished();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Export {} for user {} failed", job.getId(), job.getUserId(), e);
+            deleteQuietly(part);
+            job.failed("Export failed");
+        } finally {
+            activeJobs.remove(job.getUserId(), job);
+        }
+    }
+    
+    @Scheduled(fixedDelayString = "${app.export.cleanup-interval-ms:300000}")
+    public void removeExpired() {
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(ttlMinutes);
+        jobs.values().removeIf(job -> {
+            if (job.getFinishedAt() == null || job.getFinishedAt().isAfter(cutoff)) {
+                return false;
+            }
+            deleteQuietly(job.getFile());
+            return true;
+        });
+    }
+    
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete export file {}", file, e);
+        }
+    }
+}
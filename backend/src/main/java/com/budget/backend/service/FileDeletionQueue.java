@@ -0,0 +1,142 @@
+package com.budget.backend.service;
+
+
+import com.budget.backend.entity.StoredFile;
+import com.budget.backend.repository.StoredFileRepository;
+import com.budget.backend.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Deletes upload files on a background thread, retrying with backoff. Anything that still fails is left
+// for OrphanFileSweeper, which finds it again by comparing the upload directory with what is referenced.
+@Service
+public class FileDeletionQueue {
+    
+    private static final Logger log = LoggerFactory.getLogger(FileDeletionQueue.class);
+    
+    @Autowired
+    private StoredFileRepository storedFileRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private UploadFileResolver uploadFileResolver;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Value("${app.upload.dir}")
+    private String uploadDir;
+    
+    @Value("${app.upload.delete.max-attempts:5}")
+    private int maxAttempts;
+    
+    @Value("${app.upload.delete.retry-delay-ms:1000}")
+    private long retryDelayMs;
+    
+    private ScheduledThreadPoolExecutor executor;
+    
+    @PostConstruct
+    void init() {
+        executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "file-deletion");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    // Queues removal of an upload path once the current transaction commits (or right away outside one).
+    // Content-addressed files are only removed if nothing references their content by the time it runs.
+    public void delete(String path) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit(path, 1, 0);
+                }
+            });
+        } else {
+            submit(path, 1, 0);
+        }
+    }
+    
+    private void submit(String path, int attempt, long delayMs) {
+        try {
+            executor.schedule(() -> run(path, attempt), delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.warn("Deletion of {} not queued (shutting down); left for the orphan sweep", path);
+        }
+    }
+    
+    private void run(String path, int attempt) {
+        try {
+            if (StoredFile.hashOf(path) != null) {
+                reclaim(path);
+            } else {
+                deleteFile(path);
+            }
+        } catch (RuntimeException e) {
+            if (attempt >= maxAttempts) {
+                log.warn("Giving up deleting {} after {} attempts; left for the orphan sweep", path, attempt, e);
+                return;
+            }
+            // 1s, 2s, 4s, ...
+            submit(path, attempt + 1, retryDelayMs << (attempt - 1));
+        }
+    }
+    
+    // Removes a stored file and its thumbnails if it is still unreferenced, under the row lock an upload of the
+    // same content would take; a failed delete rolls back so the row (and the retry) stay consistent
+    private void reclaim(String path) {
+        String hash = StoredFile.hashOf(path);
+        transactionTemplate.executeWithoutResult(status -> {
+            storedFileRepository.lock(hash, path);
+            Integer refCount = storedFileRepository.findRefCount(hash);
+            if (refCount != null && refCount > 0 || !userRepository.findProfilePhotosIn(List.of(path)).isEmpty()) {
+                storedFileRepository.deleteIfUnreferenced(hash);
+                return;
+            }
+            
+            List<String> paths = new ArrayList<>(StoredFile.variantPaths(path).values());
+            paths.add(path);
+            for (String file : paths) {
+                deleteFile(file);
+            }
+            storedFileRepository.deleteIfUnreferenced(hash);
+        });
+    }
+    
+    private void deleteFile(String path) {
+        uploadFileResolver.evict(path);
+        try {
+            Files.deleteIfExists(Paths.get(uploadDir).resolve(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
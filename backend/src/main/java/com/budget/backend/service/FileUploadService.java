@@ -1,72 +1,163 @@
 package com.budget.backend.service;
 
 
+import com.budget.backend.entity.StoredFile;
 import com.budget.backend.exception.BadRequestException;
+import com.budget.backend.repository.StoredFileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
 import java.util.UUID;
 
+// Stores uploads by the SHA-256 of their content under <dir>/ab/cd/<hash>.<ext>, so identical images are kept
+// once and no directory holds more than a few hundred files. stored_files counts the references to each file.
 @Service
 public class FileUploadService {
     
+    private static final Logger log = LoggerFactory.getLogger(FileUploadService.class);
+    
+    private static final long MAX_SIZE = 2 * 1024 * 1024;
+    private static final byte[] JPEG_MAGIC = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] PNG_MAGIC = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    
     @Value("${app.upload.dir}")
     private String uploadDir;
     
+    @Autowired
+    private StoredFileRepository storedFileRepository;
+    
+    @Autowired
+    private FileDeletionQueue fileDeletionQueue;
+    
+    // Returns the stored path relative to the upload directory
+    @Transactional
     public String uploadFile(MultipartFile file) {
         if (file.isEmpty()) {
             throw new BadRequestException("Please select a file to upload");
         }
         
-        // Check file size (max 2MB)
-        if (file.getSize() > 2 * 1024 * 1024) {
+        // Check file size (max 2MB); the stream is checked again while copying
+        if (file.getSize() > MAX_SIZE) {
             throw new BadRequestException("File size exceeds maximum limit of 2MB");
         }
         
-        // Check file type
-        String contentType = file.getContentType();
-        if (contentType == null || (!contentType.equals("image/jpeg") && !contentType.equals("image/png"))) {
-            throw new BadRequestException("Only JPG and PNG files are allowed");
-        }
-        
+        Path root = Paths.get(uploadDir);
+        Path temp = null;
         try {
-            // Create upload directory if it doesn't exist
-            File uploadDirectory = new File(uploadDir);
-            if (!uploadDirectory.exists()) {
-                uploadDirectory.mkdirs();
+            Files.createDirectories(root.resolve("tmp"));
+            // Not Files.createTempFile: its owner-only permissions would carry over to the stored file
+            temp = root.resolve("tmp").resolve("upload-" + UUID.randomUUID() + ".part");
+            
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            String extension;
+            long size = 0;
+            try (InputStream in = file.getInputStream();
+                 FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+                 OutputStream out = Channels.newOutputStream(channel)) {
+                // Check file type from the content rather than the client's Content-Type
+                byte[] head = in.readNBytes(PNG_MAGIC.length);
+                extension = detectImageType(head);
+                if (extension == null) {
+                    throw new BadRequestException("Only JPG and PNG files are allowed");
+                }
+                
+                byte[] buffer = new byte[8192];
+                int n = head.length;
+                System.arraycopy(head, 0, buffer, 0, n);
+                do {
+                    size += n;
+                    if (size > MAX_SIZE) {
+                        throw new BadRequestException("File size exceeds maximum limit of 2MB");
+                    }
+                    sha256.update(buffer, 0, n);
+                    out.write(buffer, 0, n);
+                } while ((n = in.read(buffer)) != -1);
             }
             
-            // Generate unique filename
-            String originalFilename = file.getOriginalFilename();
-            String extension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            String filename = UUID.randomUUID().toString() + extension;
+            String hash = HexFormat.of().formatHex(sha256.digest());
+            String relative = StoredFile.pathOf(hash, extension);
             
-            // Save file
-            Path path = Paths.get(uploadDir + File.separator + filename);
-            Files.copy(file.getInputStream(), path, StandardCopyOption.REPLACE_EXISTING);
+            // Takes the row lock, so a concurrent reclaim of the same content (FileDeletionQueue) either finishes
+            // first or waits for us. The file is put in place even if it exists, in case a reclaim just removed it.
+            storedFileRepository.addReference(hash, relative, "jpg".equals(extension) ? "image/jpeg" : "image/png", size);
             
-            return filename;
+            Path target = root.resolve(relative);
+            Files.createDirectories(target.getParent());
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            temp = null;
+            return relative;
         } catch (IOException e) {
             throw new BadRequestException("Failed to upload file: " + e.getMessage());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        } finally {
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
         }
     }
     
+    // Drops one reference; the file itself is deleted in the background once nothing points at it
+    @Transactional
     public void deleteFile(String filename) {
-        if (filename != null && !filename.isEmpty()) {
-            try {
-                Path path = Paths.get(uploadDir + File.separator + filename);
-                Files.deleteIfExists(path);
-            } catch (IOException e) {
-                // Log error but don't throw exception
-                System.err.println("Failed to delete file: " + e.getMessage());
+        if (filename == null || filename.isEmpty()) {
+            return;
+        }
+        
+        String hash = StoredFile.hashOf(filename);
+        if (hash != null) {
+            storedFileRepository.removeReference(hash);
+            Integer refCount = storedFileRepository.findRefCount(hash);
+            if (refCount != null && refCount > 0) {
+                return;
             }
+        } else if (filename.contains("/") || filename.contains("\\") || filename.startsWith(".")) {
+            return;
+        }
+        
+        // Photos from before content addressing are single-owner flat files
+        fileDeletionQueue.delete(filename);
+    }
+    
+    private static String detectImageType(byte[] head) {
+        if (startsWith(head, PNG_MAGIC)) {
+            return "png";
+        }
+        if (startsWith(head, JPEG_MAGIC)) {
+            return "jpg";
+        }
+        return null;
+    }
+    
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        return data.length >= prefix.length && Arrays.equals(data, 0, prefix.length, prefix, 0, prefix.length);
+    }
+    
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // Log error but don't throw exception
+            log.warn("Failed to delete file {}: {}", path, e.getMessage());
         }
     }
 }
@@ -1,100 +1,341 @@
 package com.budget.backend.service;
 
 
+import com.budget.backend.dto.BatchResult;
+import com.budget.backend.dto.IncomePatchRequest;
 import com.budget.backend.dto.IncomeRequest;
+import com.budget.backend.dto.IncomeResponse;
+import com.budget.backend.dto.KeysetCursor;
+import com.budget.backend.dto.PageResponse;
+import com.budget.backend.dto.TransactionFilter;
 import com.budget.backend.entity.Income;
+import com.budget.backend.entity.MonthlyRollup;
 import com.budget.backend.entity.User;
+import com.budget.backend.exception.BadRequestException;
 import com.budget.backend.exception.ResourceNotFoundException;
 import com.budget.backend.repository.IncomeRepository;
+import com.budget.backend.repository.ProjectionRepository;
+import com.budget.backend.repository.TransactionPatchRepository;
+import com.budget.backend.repository.TransactionSpecifications;
 import com.budget.backend.repository.UserRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class IncomeService {
     
+    // IncomeResponse constructor arguments, in order
+    private static final List<String> RESPONSE_ATTRIBUTES = List.of("id", "amount", "category", "source", "date", "note", "createdAt");
+    
     @Autowired
     private IncomeRepository incomeRepository;
     
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private MonthlyRollupService monthlyRollupService;
+    
+    @Autowired
+    private DashboardCache dashboardCache;
+    
+    @Autowired
+    private TransactionPatchRepository transactionPatchRepository;
+    
+    @Autowired
+    private ProjectionRepository projectionRepository;
+    
+    @Autowired
+    private Validator validator;
+    
     public Income createIncome(String email, IncomeRequest request) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+        return createIncome(getUserId(email), request);
+    }
+    
+    @Transactional
+    public Income createIncome(Long userId, IncomeRequest request) {
+        // Reference only; the user row is not loaded just to set the foreign key
+        User user = userRepository.getReferenceById(userId);
         
-        Income income = new Income();
-        income.setAmount(request.getAmount());
-        income.setCategory(request.getCategory());
-        income.setSource(request.getSource());
-        income.setDate(request.getDate());
-        income.setNote(request.getNote());
-        income.setUser(user);
+        Income saved = incomeRepository.save(toIncome(request, user));
+        monthlyRollupService.recordIncome(userId, saved.getDate(), saved.getCategory(), saved.getAmount());
+        dashboardCache.invalidate(userId);
+        return saved;
+    }
+    
+    // Valid items are inserted together in one transaction (JDBC-batched); invalid ones are reported per item
+    @Transactional
+    public BatchResult createIncomes(Long userId, List<IncomeRequest> requests) {
+        BatchResult.checkSize(requests);
+        BatchResult result = BatchResult.ofSize(requests.size());
+        User user = userRepository.getReferenceById(userId);
         
-        return incomeRepository.save(income);
+        List<Income> incomes = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            String error = validate(requests.get(i));
+            if (error != null) {
+                result.failure(i, null, BatchResult.INVALID, error);
+                continue;
+            }
+            incomes.add(toIncome(requests.get(i), user));
+            indexes.add(i);
+        }
+        if (incomes.isEmpty()) {
+            return result;
+        }
+        
+        incomeRepository.saveAllAndFlush(incomes);
+        List<Long> ids = incomes.stream().map(Income::getId).toList();
+        monthlyRollupService.addIncomes(userId, ids);
+        dashboardCache.invalidate(userId);
+        
+        for (int n = 0; n < ids.size(); n++) {
+            result.success(indexes.get(n), ids.get(n), BatchResult.CREATED);
+        }
+        return result;
     }
     
-    public List<Income> getAllIncomes(String email) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    // Items that set the same values (e.g. recategorizing many rows) share one UPDATE
+    @Transactional
+    public BatchResult updateIncomes(Long userId, List<IncomePatchRequest> patches) {
+        BatchResult.checkSize(patches);
+        BatchResult result = BatchResult.ofSize(patches.size());
+        
+        Map<Long, Integer> indexById = new LinkedHashMap<>();
+        for (int i = 0; i < patches.size(); i++) {
+            String error = validate(patches.get(i));
+            if (error == null && indexById.containsKey(patches.get(i).getId())) {
+                error = "Duplicate id in batch";
+            }
+            if (error != null) {
+                result.failure(i, patches.get(i) != null ? patches.get(i).getId() : null, BatchResult.INVALID, error);
+            } else {
+                indexById.put(patches.get(i).getId(), i);
+            }
+        }
+        Set<Long> owned = ownedIds(userId, indexById, result);
+        if (owned.isEmpty()) {
+            return result;
+        }
+        
+        Map<Map<String, Object>, List<Long>> groups = new LinkedHashMap<>();
+        for (Long id : owned) {
+            Map<String, Object> values = changedValues(patches.get(indexById.get(id)));
+            if (!values.isEmpty()) {
+                groups.computeIfAbsent(values, v -> new ArrayList<>()).add(id);
+            }
+        }
+        
+        monthlyRollupService.removeIncomes(userId, owned);
+        groups.forEach((values, ids) -> transactionPatchRepository.patch(Income.class, userId, ids, values));
+        monthlyRollupService.addIncomes(userId, owned);
+        dashboardCache.invalidate(userId);
         
-        return incomeRepository.findByUserIdOrderByDateDesc(user.getId());
+        for (Long id : owned) {
+            result.success(indexById.get(id), id, BatchResult.UPDATED);
+        }
+        return result;
     }
     
-    public List<Income> getFilteredIncomes(String email, LocalDate startDate, LocalDate endDate, String category) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    @Transactional
+    public BatchResult deleteIncomes(Long userId, List<Long> ids) {
+        BatchResult.checkSize(ids);
+        BatchResult result = BatchResult.ofSize(ids.size());
+        
+        Map<Long, Integer> indexById = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i) == null) {
+                result.failure(i, null, BatchResult.INVALID, "Id is required");
+            } else if (indexById.containsKey(ids.get(i))) {
+                result.failure(i, ids.get(i), BatchResult.INVALID, "Duplicate id in batch");
+            } else {
+                indexById.put(ids.get(i), i);
+            }
+        }
+        Set<Long> owned = ownedIds(userId, indexById, result);
+        if (owned.isEmpty()) {
+            return result;
+        }
+        
+        monthlyRollupService.removeIncomes(userId, owned);
+        incomeRepository.deleteByUserIdAndIdIn(userId, owned);
+        dashboardCache.invalidate(userId);
         
-        if (startDate != null && endDate != null && category != null && !category.isEmpty()) {
-            return incomeRepository.findByUserIdAndDateBetweenAndCategoryOrderByDateDesc(
-                    user.getId(), startDate, endDate, category);
-        } else if (startDate != null && endDate != null) {
-            return incomeRepository.findByUserIdAndDateBetweenOrderByDateDesc(
-                    user.getId(), startDate, endDate);
-        } else if (category != null && !category.isEmpty()) {
-            return incomeRepository.findByUserIdAndCategoryOrderByDateDesc(user.getId(), category);
-        } else {
-            return incomeRepository.findByUserIdOrderByDateDesc(user.getId());
+        for (Long id : owned) {
+            result.success(indexById.get(id), id, BatchResult.DELETED);
         }
+        return result;
     }
     
-    public Income getIncomeById(String email, Long id) {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    @Transactional(readOnly = true)
+    public List<IncomeResponse> getAllIncomes(String email) {
+        return getAllIncomes(getUserId(email));
+    }
+    
+    @Transactional(readOnly = true)
+    public List<IncomeResponse> getAllIncomes(Long userId) {
+        return incomeRepository.findResponsesByUserId(userId);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<IncomeResponse> getFilteredIncomes(String email, LocalDate startDate, LocalDate endDate, String category) {
+        return getFilteredIncomes(getUserId(email), startDate, endDate, category);
+    }
+    
+    @Transactional(readOnly = true)
+    public List<IncomeResponse> getFilteredIncomes(Long userId, LocalDate startDate, LocalDate endDate, String category) {
+        return getFilteredIncomes(userId, TransactionFilter.of(startDate, endDate, category));
+    }
+    
+    @Transactional(readOnly = true)
+    public List<IncomeResponse> getFilteredIncomes(Long userId, TransactionFilter filter) {
+        return projectionRepository.findAll(Income.class, IncomeResponse.class, RESPONSE_ATTRIBUTES,
+                TransactionSpecifications.matching(userId, filter, "source"), TransactionSpecifications.sortOf(filter), 0);
+    }
+    
+    // Keyset page in date order; deep pages cost the same as the first one
+    @Transactional(readOnly = true)
+    public PageResponse<IncomeResponse> getIncomePage(Long userId, TransactionFilter filter, String cursor, Integer limit) {
+        int pageSize = PageResponse.clampLimit(limit);
+        Sort sort = TransactionSpecifications.sortOf(filter);
+        if (!sort.equals(TransactionSpecifications.NEWEST_FIRST) && !sort.equals(TransactionSpecifications.OLDEST_FIRST)) {
+            throw new BadRequestException("Paging is only supported when sorting by date");
+        }
         
-        Income income = incomeRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Income not found"));
+        Specification<Income> spec = TransactionSpecifications.<Income>matching(userId, filter, "source")
+                .and(TransactionSpecifications.after(KeysetCursor.decode(cursor), sort));
         
-        if (!income.getUser().getId().equals(user.getId())) {
+        List<IncomeResponse> rows = projectionRepository.findAll(Income.class, IncomeResponse.class, RESPONSE_ATTRIBUTES,
+                spec, sort, pageSize + 1);
+        return PageResponse.of(rows, pageSize, income -> new KeysetCursor(income.getDate(), income.getId()));
+    }
+    
+    @Transactional(readOnly = true)
+    public IncomeResponse getIncomeById(String email, Long id) {
+        return getIncomeById(getUserId(email), id);
+    }
+    
+    @Transactional(readOnly = true)
+    public IncomeResponse getIncomeById(Long userId, Long id) {
+        return incomeRepository.findResponseByIdAndUserId(id, userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Income not found"));
+    }
+    
+    public IncomeResponse updateIncome(String email, Long id, IncomeRequest request) {
+        return updateIncome(getUserId(email), id, request);
+    }
+    
+    @Transactional
+    public IncomeResponse updateIncome(Long userId, Long id, IncomeRequest request) {
+        // Take the old values out of the rollups before the row changes, then add the new ones back
+        monthlyRollupService.removeIncomes(userId, List.of(id));
+        int updated = incomeRepository.updateByIdAndUserId(id, userId, request.getAmount(), request.getCategory(),
+                request.getSource(), request.getDate(), request.getNote());
+        if (updated == 0) {
             throw new ResourceNotFoundException("Income not found");
         }
+        monthlyRollupService.addIncomes(userId, List.of(id));
+        dashboardCache.invalidate(userId);
         
-        return income;
+        // Read back for the response body
+        return getIncomeById(userId, id);
     }
     
-    public Income updateIncome(String email, Long id, IncomeRequest request) {
-        Income income = getIncomeById(email, id);
-        
+    public void deleteIncome(String email, Long id) {
+        deleteIncome(getUserId(email), id);
+    }
+    
+    @Transactional
+    public void deleteIncome(Long userId, Long id) {
+        monthlyRollupService.removeIncomes(userId, List.of(id));
+        if (incomeRepository.deleteByIdAndUserId(id, userId) == 0) {
+            throw new ResourceNotFoundException("Income not found");
+        }
+        dashboardCache.invalidate(userId);
+    }
+    
+    public BigDecimal getTotalIncome(Long userId) {
+        return monthlyRollupService.getTotal(userId, MonthlyRollup.INCOME);
+    }
+    
+    private static Income toIncome(IncomeRequest request, User user) {
+        Income income = new Income();
         income.setAmount(request.getAmount());
         income.setCategory(request.getCategory());
         income.setSource(request.getSource());
         income.setDate(request.getDate());
         income.setNote(request.getNote());
-        
-        return incomeRepository.save(income);
+        income.setUser(user);
+        return income;
     }
     
-    public void deleteIncome(String email, Long id) {
-        Income income = getIncomeById(email, id);
-        incomeRepository.delete(income);
+    // Ids in the batch that exist and belong to the user; the rest are marked not found
+    private Set<Long> ownedIds(Long userId, Map<Long, Integer> indexById, BatchResult result) {
+        if (indexById.isEmpty()) {
+            return Set.of();
+        }
+        Set<Long> owned = new LinkedHashSet<>(incomeRepository.findIdsByUserIdAndIdIn(userId, indexById.keySet()));
+        indexById.forEach((id, index) -> {
+            if (!owned.contains(id)) {
+                result.failure(index, id, BatchResult.NOT_FOUND, "Income not found");
+            }
+        });
+        return owned;
     }
     
-    public BigDecimal getTotalIncome(Long userId) {
-        BigDecimal total = incomeRepository.getTotalIncomeByUserId(userId);
-        return total != null ? total : BigDecimal.ZERO;
+    private static Map<String, Object> changedValues(IncomePatchRequest patch) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        if (patch.getAmount() != null) {
+            values.put("amount", patch.getAmount());
+        }
+        if (patch.getCategory() != null) {
+            values.put("category", patch.getCategory());
+        }
+        if (patch.getSource() != null) {
+            values.put("source", patch.getSource());
+        }
+        if (patch.getDate() != null) {
+            values.put("date", patch.getDate());
+        }
+        if (patch.getNote() != null) {
+            values.put("note", patch.getNote());
+        }
+        return values;
+    }
+    
+    private String validate(Object item) {
+        if (item == null) {
+            return "Item is required";
+        }
+        Set<ConstraintViolation<Object>> violations = validator.validate(item);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+    
+    private Long getUserId(String email) {
+        return userRepository.findByEmail(email)
+                .map(User::getId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
     }
 }
@@ -0,0 +1,62 @@
+package com.budget.backend.service;
+
+
+import com.budget.backend.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Periodically checks every user's rollups against the raw tables and rebuilds the ones that drifted.
+// Disabled unless app.rollup.repair-cron is set.
+@Component
+public class MonthlyRollupRepairJob {
+    
+    private static final Logger log = LoggerFactory.getLogger(MonthlyRollupRepairJob.class);
+    private static final int BATCH_SIZE = 500;
+    
+    @Autowired
+    private MonthlyRollupService monthlyRollupService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private DashboardCache dashboardCache;
+    
+    @Scheduled(cron = "${app.rollup.repair-cron:-}")
+    public void repairAll() {
+        int checked = 0;
+        int repaired = 0;
+        Long afterId = 0L;
+        List<Long> ids;
+        do {
+            ids = userRepository.findIdsAfter(afterId, PageRequest.ofSize(BATCH_SIZE));
+            for (Long userId : ids) {
+                if (repair(userId)) {
+                    repaired++;
+                }
+                checked++;
+                afterId = userId;
+            }
+        } while (ids.size() == BATCH_SIZE);
+        
+        log.info("Rollup repair finished: {} users checked, {} rebuilt", checked, repaired);
+    }
+    
+    public boolean repair(Long userId) {
+        List<String> mismatches = monthlyRollupService.verify(userId);
+        if (mismatches.isEmpty()) {
+            return false;
+        }
+        log.warn("Rebuilding rollups for user {}: {}", userId, mismatches);
+        monthlyRollupService.rebuild(userId);
+        // The cached dashboard (and its ETag) was built from the drifted totals
+        dashboardCache.invalidate(userId);
+        return true;
+    }
+}
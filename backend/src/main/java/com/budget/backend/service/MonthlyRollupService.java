@@ -0,0 +1,124 @@
+package com.budget.backend.service;
+
+
+import com.budget.backend.dto.MonthlyReportRow;
+import com.budget.backend.entity.MonthlyRollup;
+import com.budget.backend.repository.MonthlyRollupRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Keeps monthly_rollups in step with the expenses and incomes tables. Callers must already be inside the
+// transaction that writes the transaction row so both commit or roll back together.
+@Service
+public class MonthlyRollupService {
+    
+    @Autowired
+    private MonthlyRollupRepository monthlyRollupRepository;
+    
+    public void recordExpense(Long userId, LocalDate date, String category, BigDecimal amount) {
+        monthlyRollupRepository.add(userId, MonthlyRollup.EXPENSE, MonthlyRollup.periodOf(date), category, amount, 1);
+    }
+    
+    public void recordIncome(Long userId, LocalDate date, String category, BigDecimal amount) {
+        monthlyRollupRepository.add(userId, MonthlyRollup.INCOME, MonthlyRollup.periodOf(date), category, amount, 1);
+    }
+    
+    // Must run before the rows are changed or deleted; reads their current values from the table
+    public void removeExpenses(Long userId, Collection<Long> ids) {
+        monthlyRollupRepository.applyExpenses(userId, ids, -1);
+    }
+    
+    // Must run after the rows are inserted or changed
+    public void addExpenses(Long userId, Collection<Long> ids) {
+        monthlyRollupRepository.applyExpenses(userId, ids, 1);
+    }
+    
+    public void removeIncomes(Long userId, Collection<Long> ids) {
+        monthlyRollupRepository.applyIncomes(userId, ids, -1);
+    }
+    
+    public void addIncomes(Long userId, Collection<Long> ids) {
+        monthlyRollupRepository.applyIncomes(userId, ids, 1);
+    }
+    
+    public BigDecimal getTotal(Long userId, String kind) {
+        BigDecimal total = monthlyRollupRepository.sumTotal(userId, kind);
+        return total != null ? total : BigDecimal.ZERO;
+    }
+    
+    public long countTransactions(Long userId) {
+        Long count = monthlyRollupRepository.sumEntryCount(userId);
+        return count != null ? count : 0;
+    }
+    
+    @Transactional(readOnly = true)
+    public List<MonthlyReportRow> getReport(Long userId, YearMonth from, YearMonth to) {
+        List<MonthlyReportRow> rows = new ArrayList<>();
+        for (MonthlyRollup rollup : monthlyRollupRepository.findReport(userId, periodOf(from), periodOf(to))) {
+            rows.add(new MonthlyReportRow(
+                    String.format("%04d-%02d", rollup.getPeriod() / 100, rollup.getPeriod() % 100),
+                    rollup.getKind().toLowerCase(),
+                    rollup.getCategory(),
+                    rollup.getTotal(),
+                    rollup.getEntryCount()
+            ));
+        }
+        return rows;
+    }
+    
+    // Compares the rollups with sums computed from the raw tables; returns one line per mismatched bucket
+    @Transactional(readOnly = true)
+    public List<String> verify(Long userId) {
+        Map<MonthlyRollup.Key, MonthlyRollup> expected = new HashMap<>();
+        for (Object[] row : monthlyRollupRepository.computeFromTransactions(userId)) {
+            MonthlyRollup rollup = new MonthlyRollup(userId, (String) row[0], ((Number) row[1]).intValue(),
+                    (String) row[2], (BigDecimal) row[3], ((Number) row[4]).longValue());
+            expected.put(keyOf(rollup), rollup);
+        }
+        
+        List<String> mismatches = new ArrayList<>();
+        for (MonthlyRollup actual : monthlyRollupRepository.findByUserId(userId)) {
+            MonthlyRollup raw = expected.remove(keyOf(actual));
+            boolean empty = actual.getEntryCount() == 0 && actual.getTotal().signum() == 0;
+            if (raw == null ? !empty : !sameTotals(raw, actual)) {
+                mismatches.add(keyOf(actual) + ": rollup " + actual.getTotal() + "/" + actual.getEntryCount()
+                        + ", raw " + (raw == null ? "none" : raw.getTotal() + "/" + raw.getEntryCount()));
+            }
+        }
+        for (MonthlyRollup missing : expected.values()) {
+            mismatches.add(keyOf(missing) + ": rollup missing, raw " + missing.getTotal() + "/" + missing.getEntryCount());
+        }
+        return mismatches;
+    }
+    
+    // Recomputes every bucket of one user from the raw tables
+    @Transactional
+    public void rebuild(Long userId) {
+        monthlyRollupRepository.deleteByUserId(userId);
+        monthlyRollupRepository.rebuildExpenses(userId);
+        monthlyRollupRepository.rebuildIncomes(userId);
+    }
+    
+    private static int periodOf(YearMonth month) {
+        return month.getYear() * 100 + month.getMonthValue();
+    }
+    
+    private static MonthlyRollup.Key keyOf(MonthlyRollup rollup) {
+        return new MonthlyRollup.Key(rollup.getUserId(), rollup.getKind(), rollup.getPeriod(), rollup.getCategory());
+    }
+    
+    private static boolean sameTotals(MonthlyRollup a, MonthlyRollup b) {
+        return a.getTotal().compareTo(b.getTotal()) == 0 && Objects.equals(a.getEntryCount(), b.getEntryCount());
+    }
+}
@@ -0,0 +1,181 @@
+package com.budget.backend.service;
+
+
+import com.budget.backend.entity.StoredFile;
+import com.budget.backend.repository.StoredFileRepository;
+import com.budget.backend.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Periodically walks the upload directory and queues deletion of files nothing refers to any more: stored
+// files with no references left, photos no user has, and abandoned temp files. Works in batches with a pause
+// in between so it doesn't compete with request traffic for disk. Runs on a thread of its own, since the pauses
+// would otherwise hold up the other @Scheduled jobs on Spring's single scheduler thread. Disabled unless
+// app.upload.sweep-cron is set.
+@Component
+public class OrphanFileSweeper {
+    
+    private static final Logger log = LoggerFactory.getLogger(OrphanFileSweeper.class);
+    private static final Pattern VARIANT = Pattern.compile("([0-9a-f]{64})_\\d+\\.jpg");
+    
+    @Autowired
+    private StoredFileRepository storedFileRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private FileDeletionQueue fileDeletionQueue;
+    
+    @Value("${app.upload.dir}")
+    private String uploadDir;
+    
+    @Value("${app.upload.sweep.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${app.upload.sweep.pause-ms:200}")
+    private long pauseMs;
+    
+    // Files younger than this are left alone; they may belong to an upload that hasn't committed yet
+    @Value("${app.upload.sweep.grace-minutes:60}")
+    private long graceMinutes;
+    
+    private ThreadPoolExecutor executor;
+    
+    @PostConstruct
+    void init() {
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1), runnable -> {
+                    Thread thread = new Thread(runnable, "upload-sweep");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    @Scheduled(cron = "${app.upload.sweep-cron:-}")
+    public void scheduleSweep() {
+        try {
+            executor.execute(this::sweep);
+        } catch (RejectedExecutionException e) {
+            log.warn("Upload sweep skipped: the previous one is still running");
+        }
+    }
+    
+    public void sweep() {
+        Path root = Paths.get(uploadDir);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        
+        Instant cutoff = Instant.now().minusSeconds(graceMinutes * 60);
+        int checked = 0;
+        int queued = 0;
+        try (Stream<Path> files = Files.walk(root, 3)) {
+            Iterator<Path> it = files.filter(Files::isRegularFile).iterator();
+            List<Path> batch = new ArrayList<>(batchSize);
+            while (it.hasNext()) {
+                batch.add(it.next());
+                if (batch.size() == batchSize || !it.hasNext()) {
+                    checked += batch.size();
+                    queued += sweepBatch(root, batch, cutoff);
+                    batch.clear();
+                    if (it.hasNext()) {
+                        Thread.sleep(pauseMs);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Upload sweep stopped early: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        log.info("Upload sweep finished: {} files checked, {} queued for deletion", checked, queued);
+    }
+    
+    private int sweepBatch(Path root, List<Path> batch, Instant cutoff) throws IOException {
+        // Stored content keyed by hash, each with the path its deletion is queued under (the original's)
+        Map<String, String> stored = new LinkedHashMap<>();
+        List<String> flat = new ArrayList<>();
+        List<String> temp = new ArrayList<>();
+        
+        for (Path file : batch) {
+            if (Files.getLastModifiedTime(file).toInstant().isAfter(cutoff)) {
+                continue;
+            }
+            String relative = root.relativize(file).toString().replace(File.separatorChar, '/');
+            String name = file.getFileName().toString();
+            Matcher variant = VARIANT.matcher(name);
+            if (name.endsWith(".part")) {
+                temp.add(relative);
+            } else if (StoredFile.hashOf(relative) != null) {
+                stored.put(StoredFile.hashOf(relative), relative);
+            } else if (variant.matches() && StoredFile.isContentAddressed(relative)) {
+                // A variant alone still needs a path to queue under; the original's extension doesn't matter for that
+                stored.putIfAbsent(variant.group(1), StoredFile.pathOf(variant.group(1), "jpg"));
+            } else if (file.getParent().equals(root)) {
+                flat.add(relative);
+            }
+        }
+        
+        Set<String> referenced = new HashSet<>();
+        if (!stored.isEmpty()) {
+            referenced.addAll(storedFileRepository.findReferenced(stored.keySet()));
+            for (String photo : userRepository.findProfilePhotosIn(stored.values())) {
+                referenced.add(StoredFile.hashOf(photo));
+            }
+        }
+        Set<String> flatInUse = flat.isEmpty() ? Set.of() : new HashSet<>(userRepository.findProfilePhotosIn(flat));
+        
+        int queued = 0;
+        for (Map.Entry<String, String> entry : stored.entrySet()) {
+            if (!referenced.contains(entry.getKey())) {
+                fileDeletionQueue.delete(entry.getValue());
+                queued++;
+            }
+        }
+        for (String path : flat) {
+            if (!flatInUse.contains(path)) {
+                fileDeletionQueue.delete(path);
+                queued++;
+            }
+        }
+        for (String path : temp) {
+            fileDeletionQueue.delete(path);
+            queued++;
+        }
+        return queued;
+    }
+}
@@ -0,0 +1,163 @@
+package com.budget.backend.service;
+
+
+import com.budget.backend.entity.StoredFile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Generates the square JPEG variants (StoredFile.VARIANT_SIZES) of uploaded photos in the background.
+// Until a variant exists, requests for it are answered with the original (see UploadFileResolver).
+@Service
+public class ThumbnailService {
+    
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+    private static final float JPEG_QUALITY = 0.85f;
+    
+    @Value("${app.upload.dir}")
+    private String uploadDir;
+    
+    @Value("${app.thumbnail.queue-capacity:1000}")
+    private int queueCapacity;
+    
+    private ThreadPoolExecutor executor;
+    
+    @PostConstruct
+    void init() {
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "thumbnails");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    public void generateAsync(String path) {
+        if (StoredFile.hashOf(path) == null) {
+            return;
+        }
+        try {
+            executor.execute(() -> generate(path));
+        } catch (RejectedExecutionException e) {
+            // The original keeps being served in place of the missing variants
+            log.warn("Thumbnail queue full, skipping {}", path);
+        }
+    }
+    
+    public void generate(String path) {
+        Path root = Paths.get(uploadDir);
+        Path source = root.resolve(path);
+        try {
+            BufferedImage image = null;
+            for (int size : StoredFile.VARIANT_SIZES) {
+                Path target = root.resolve(StoredFile.variantPath(path, size));
+                // Identical uploads share their variants, so they may already be there
+                if (Files.exists(target)) {
+                    continue;
+                }
+                if (image == null) {
+                    image = read(source, StoredFile.VARIANT_SIZES[StoredFile.VARIANT_SIZES.length - 1]);
+                    if (image == null) {
+                        log.warn("Cannot decode {}, no thumbnails generated", path);
+                        return;
+                    }
+                }
+                write(squareThumbnail(image, size), target);
+            }
+        } catch (IOException e) {
+            log.warn("Thumbnail generation failed for {}: {}", path, e.getMessage());
+        }
+    }
+    
+    // Decodes with subsampling so a large photo never has to be held at full resolution
+    private static BufferedImage read(Path source, int largestSize) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int shortSide = Math.min(reader.getWidth(0), reader.getHeight(0));
+                // Keep at least twice the largest variant so the final downscale still has detail to work with
+                int step = Math.max(1, shortSide / (largestSize * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+    
+    // Centre crop to a square, then halve repeatedly before the last step so the result isn't aliased
+    private static BufferedImage squareThumbnail(BufferedImage image, int size) {
+        int side = Math.min(image.getWidth(), image.getHeight());
+        BufferedImage current = image.getSubimage((image.getWidth() - side) / 2, (image.getHeight() - side) / 2, side, side);
+        int currentSize = side;
+        do {
+            currentSize = Math.max(size, currentSize / 2);
+            BufferedImage next = new BufferedImage(currentSize, currentSize, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                // JPEG has no alpha; transparent PNG areas become white
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, currentSize, currentSize);
+                g.drawImage(current, 0, 0, currentSize, currentSize, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (currentSize > size);
+        return current;
+    }
+    
+    private static void write(BufferedImage image, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        Path temp = target.resolveSibling(target.getFileName() + ".part");
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
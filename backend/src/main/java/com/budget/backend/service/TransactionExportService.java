@@ -0,0 +1,159 @@
+package com.budget.backend.service;
+
+
+import com.budget.backend.dto.TransactionResponse;
+import com.mysql.cj.conf.PropertyKey;
+import com.mysql.cj.conf.PropertySet;
+import com.mysql.cj.jdbc.JdbcConnection;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.SQLExceptionTranslator;
+import org.springframework.jdbc.support.SQLStateSQLExceptionTranslator;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+// Writes a user's full history as CSV while reading it, so memory use doesn't grow with the history
+@Service
+public class TransactionExportService {
+    
+    private static final CSVFormat FORMAT = CSVFormat.DEFAULT.builder()
+            .setHeader("Date", "Type", "Category", "Description", "Amount", "Note")
+            .build();
+    
+    // Same order as the /api/transactions timeline
+    private static final Comparator<TransactionResponse> NEWEST_FIRST = Comparator
+            .comparing(TransactionResponse::getDate)
+            .thenComparing(TransactionResponse::getId)
+            .thenComparing(TransactionResponse::getType)
+            .reversed();
+    
+    private static final String INCOMES_SQL = "SELECT id, amount, category, source, date, note FROM incomes "
+            + "WHERE user_id = ? ORDER BY date DESC, id DESC";
+    private static final String EXPENSES_SQL = "SELECT id, amount, category, description, date, note FROM expenses "
+            + "WHERE user_id = ? ORDER BY date DESC, id DESC";
+    private static final int FETCH_SIZE = 500;
+    
+    private static final SQLExceptionTranslator SQL_ERRORS = new SQLStateSQLExceptionTranslator();
+    
+    @Autowired
+    private DataSource dataSource;
+    
+    @Transactional(readOnly = true)
+    public void writeCsv(Long userId, OutputStream out, boolean gzip) throws IOException {
+        writeCsv(userId, out, gzip, new AtomicLong());
+    }
+    
+    // rowsWritten is updated as rows go out so a background job can report progress. Both queries run on
+    // the read-only transaction's connection (a replica when they are configured), so they see the same snapshot.
+    @Transactional(readOnly = true)
+    public void writeCsv(Long userId, OutputStream out, boolean gzip, AtomicLong rowsWritten) throws IOException {
+        OutputStream target = gzip ? new GZIPOutputStream(out, 8192) : out;
+        
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try (CursorFetch cursorFetch = CursorFetch.enable(connection);
+             PreparedStatement incomes = prepare(connection, INCOMES_SQL, userId);
+             PreparedStatement expenses = prepare(connection, EXPENSES_SQL, userId);
+             ResultSet incomeRows = incomes.executeQuery();
+             ResultSet expenseRows = expenses.executeQuery()) {
+            CSVPrinter printer = new CSVPrinter(
+                    new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8)), FORMAT);
+            
+            // Both result sets are already newest first; take whichever head is newer
+            TransactionResponse income = next(incomeRows, "income");
+            TransactionResponse expense = next(expenseRows, "expense");
+            while (income != null || expense != null) {
+                if (expense == null || (income != null && NEWEST_FIRST.compare(income, expense) <= 0)) {
+                    print(printer, income);
+                    income = next(incomeRows, "income");
+                    rowsWritten.incrementAndGet();
+                } else {
+                    print(printer, expense);
+                    expense = next(expenseRows, "expense");
+                    rowsWritten.incrementAndGet();
+                }
+            }
+            
+            // Finishes the gzip trailer too; the servlet output stream itself is closed by the container
+            printer.flush();
+            if (gzip) {
+                ((GZIPOutputStream) target).finish();
+            }
+        } catch (SQLException e) {
+            throw SQL_ERRORS.translate("CSV export", null, e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+    
+    private static PreparedStatement prepare(Connection connection, String sql, Long userId) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        statement.setFetchSize(FETCH_SIZE);
+        statement.setLong(1, userId);
+        return statement;
+    }
+    
+    private static TransactionResponse next(ResultSet rows, String type) throws SQLException {
+        if (!rows.next()) {
+            return null;
+        }
+        return new TransactionResponse(rows.getLong(1), type, rows.getBigDecimal(2), rows.getString(3),
+                rows.getString(4), rows.getObject(5, LocalDate.class), rows.getString(6));
+    }
+    
+    private static void print(CSVPrinter printer, TransactionResponse row) throws IOException {
+        printer.printRecord(
+                row.getDate(),
+                "income".equals(row.getType()) ? "Income" : "Expense",
+                row.getCategory(),
+                row.getDescription(),
+                row.getAmount(),
+                row.getNote()
+        );
+    }
+    
+    // With useCursorFetch, MySQL Connector/J reads a result set with a fetch size through a server-side cursor,
+    // a fetch at a time, so both result sets can be open on one connection without either being buffered whole.
+    // It also makes the driver prepare statements on the server, which would cost every other query a
+    // prepare/close round trip, so it is switched on for the export's connection only and back off (declared
+    // first, closed last) before the connection goes back to the pool. Other drivers are left as they are.
+    private record CursorFetch(PropertySet properties, boolean useCursorFetch, boolean useServerPrepStmts)
+            implements AutoCloseable {
+        
+        static CursorFetch enable(Connection connection) throws SQLException {
+            if (!connection.isWrapperFor(JdbcConnection.class)) {
+                return null;
+            }
+            PropertySet properties = connection.unwrap(JdbcConnection.class).getPropertySet();
+            CursorFetch previous = new CursorFetch(properties,
+                    properties.getBooleanProperty(PropertyKey.useCursorFetch).getValue(),
+                    properties.getBooleanProperty(PropertyKey.useServerPrepStmts).getValue());
+            properties.getBooleanProperty(PropertyKey.useCursorFetch).setValue(true);
+            properties.getBooleanProperty(PropertyKey.useServerPrepStmts).setValue(true);
+            return previous;
+        }
+        
+        @Override
+        public void close() {
+            properties.getBooleanProperty(PropertyKey.useCursorFetch).setValue(useCursorFetch);
+            properties.getBooleanProperty(PropertyKey.useServerPrepStmts).setValue(useServerPrepStmts);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.budget.backend.service;
+
+
+import com.budget.backend.dto.ExpenseRequest;
+import com.budget.backend.dto.ImportResult;
+import com.budget.backend.dto.IncomeRequest;
+import com.budget.backend.entity.IdSequences;
+import com.budget.backend.entity.MonthlyRollup;
+import com.budget.backend.exception.BadRequestException;
+import com.budget.backend.repository.IdSequenceRepository;
+import com.budget.backend.repository.MonthlyRollupRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Imports a CSV in the same layout as the export (Date, Type, Category, Description, Amount, Note).
+// Rows are validated as they are read; valid rows are written in JDBC batches, one transaction per chunk,
+// and invalid ones are reported by line number without stopping the import.
+@Service
+public class TransactionImportService {
+    
+    public static final int CHUNK_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    
+    private static final String INSERT_EXPENSE =
+            "INSERT INTO expenses (id, amount, category, description, date, note, created_at, user_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_INCOME =
+            "INSERT INTO incomes (id, amount, category, source, date, note, created_at, user_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    
+    private static final CSVFormat FORMAT = CSVFormat.DEFAULT.builder()
+            .setHeader()
+            .setSkipHeaderRecord(true)
+            .setIgnoreHeaderCase(true)
+            .setTrim(true)
+            .setIgnoreEmptyLines(true)
+            .build();
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private IdSequenceRepository idSequenceRepository;
+    
+    @Autowired
+    private MonthlyRollupRepository monthlyRollupRepository;
+    
+    @Autowired
+    private DashboardCache dashboardCache;
+    
+    @Autowired
+    private Validator validator;
+    
+    public ImportResult importCsv(Long userId, InputStream in) throws IOException {
+        ImportResult result = new ImportResult();
+        
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8);
+             CSVParser parser = FORMAT.parse(reader)) {
+            for (String required : List.of("Date", "Category", "Description", "Amount")) {
+                if (parser.getHeaderMap().keySet().stream().noneMatch(required::equalsIgnoreCase)) {
+                    throw new BadRequestException("Missing column: " + required);
+                }
+            }
+            
+            Chunk chunk = new Chunk();
+            for (CSVRecord record : parser) {
+                try {
+                    chunk.add(parse(record));
+                } catch (IllegalArgumentException e) {
+                    reject(result, record.getRecordNumber() + 1, e.getMessage());
+                }
+                if (chunk.size() >= CHUNK_SIZE) {
+                    result.setImported(result.getImported() + write(userId, chunk));
+                    chunk = new Chunk();
+                }
+            }
+            result.setImported(result.getImported() + write(userId, chunk));
+        } catch (UncheckedIOException e) {
+            // Malformed CSV (e.g. an unterminated quote) surfaces from the parser's iterator
+            throw new BadRequestException("Malformed CSV: " + e.getCause().getMessage());
+        }
+        
+        return result;
+    }
+    
+    // One transaction per chunk: the rows and their monthly rollups commit together
+    private int write(Long userId, Chunk chunk) {
+        if (chunk.size() == 0) {
+            return 0;
+        }
+        
+        // Ids come from the same pooled sequences the entities use; a rolled back chunk only leaves a gap
+        long firstExpenseId = chunk.expenses.isEmpty() ? 0 : idSequenceRepository.reserve(IdSequences.EXPENSES, chunk.expenses.size());
+        long firstIncomeId = chunk.incomes.isEmpty() ? 0 : idSequenceRepository.reserve(IdSequences.INCOMES, chunk.incomes.size());
+        
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_EXPENSE, chunk.rows(chunk.expenses, firstExpenseId, userId, now));
+            jdbcTemplate.batchUpdate(INSERT_INCOME, chunk.rows(chunk.incomes, firstIncomeId, userId, now));
+            chunk.rollups.forEach((key, bucket) -> monthlyRollupRepository.add(userId, key.getKind(), key.getPeriod(),
+                    key.getCategory(), bucket.total, bucket.count));
+            dashboardCache.invalidate(userId);
+        });
+        return chunk.size();
+    }
+    
+    private Row parse(CSVRecord record) {
+        String rawAmount = value(record, "Amount");
+        String type = value(record, "Type");
+        BigDecimal amount;
+        try {
+            amount = new BigDecimal(rawAmount.replace(",", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount: " + rawAmount);
+        }
+        
+        // Bank exports often have no type column and sign the amount instead: negative is money out
+        boolean income;
+        if (type.isEmpty()) {
+            income = amount.signum() > 0;
+            amount = amount.abs();
+        } else if (type.equalsIgnoreCase("income")) {
+            income = true;
+        } else if (type.equalsIgnoreCase("expense")) {
+            income = false;
+        } else {
+            throw new IllegalArgumentException("Type must be Income or Expense");
+        }
+        
+        Row row = new Row(income, amount, value(record, "Category"), value(record, "Description"),
+                parseDate(value(record, "Date")), blankToNull(value(record, "Note")));
+        validate(row);
+        return row;
+    }
+    
+    // Same rules as the single-row endpoints, plus the column sizes
+    private void validate(Row row) {
+        Set<? extends ConstraintViolation<?>> violations;
+        if (row.income()) {
+            IncomeRequest request = new IncomeRequest();
+            request.setAmount(row.amount());
+            request.setCategory(row.category());
+            request.setSource(row.description());
+            request.setDate(row.date());
+            request.setNote(row.note());
+            violations = validator.validate(request);
+        } else {
+            ExpenseRequest request = new ExpenseRequest();
+            request.setAmount(row.amount());
+            request.setCategory(row.category());
+            request.setDescription(row.description());
+            request.setDate(row.date());
+            request.setNote(row.note());
+            violations = validator.validate(request);
+        }
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; ")));
+        }
+        if (row.category().length() > 255 || row.description().length() > 255) {
+            throw new IllegalArgumentException("Category and description must be at most 255 characters");
+        }
+        if (row.note() != null && row.note().length() > 500) {
+            throw new IllegalArgumentException("Note must be at most 500 characters");
+        }
+        if (row.amount().scale() > 2 || row.amount().precision() - row.amount().scale() > 36) {
+            throw new IllegalArgumentException("Invalid amount: " + row.amount());
+        }
+    }
+    
+    private static void reject(ImportResult result, long line, String message) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+            result.getErrors().add(new ImportResult.RowError(line, message));
+        }
+    }
+    
+    // Header lookups ignore case; missing or short columns read as empty
+    private static String value(CSVRecord record, String column) {
+        return record.isMapped(column) && record.isSet(column) ? record.get(column) : "";
+    }
+    
+    private static LocalDate parseDate(String value) {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date: " + value + " (expected yyyy-MM-dd)");
+        }
+    }
+    
+    private static String blankToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+    
+    private record Row(boolean income, BigDecimal amount, String category, String description, LocalDate date, String note) {
+    }
+    
+    private static class Chunk {
+        final List<Row> expenses = new ArrayList<>();
+        final List<Row> incomes = new ArrayList<>();
+        final Map<MonthlyRollup.Key, Bucket> rollups = new HashMap<>();
+        
+        void add(Row row) {
+            (row.income() ? incomes : expenses).add(row);
+            MonthlyRollup.Key key = new MonthlyRollup.Key(null, row.income() ? MonthlyRollup.INCOME : MonthlyRollup.EXPENSE,
+                    MonthlyRollup.periodOf(row.date()), row.category());
+            Bucket bucket = rollups.computeIfAbsent(key, k -> new Bucket());
+            bucket.total = bucket.total.add(row.amount());
+            bucket.count++;
+        }
+        
+        int size() {
+            return expenses.size() + incomes.size();
+        }
+        
+        List<Object[]> rows(List<Row> rows, long firstId, Long userId, Timestamp createdAt) {
+            List<Object[]> args = new ArrayList<>(rows.size());
+            long id = firstId;
+            for (Row row : rows) {
+                args.add(new Object[] {id++, row.amount(), row.category(), row.description(), row.date(), row.note(), createdAt, userId});
+            }
+            return args;
+        }
+    }
+    
+    private static class Bucket {
+        BigDecimal total = BigDecimal.ZERO;
+        long count;
+    }
+}
@@ -0,0 +1,30 @@
+package com.budget.backend.service;
+
+
+import com.budget.backend.dto.KeysetCursor;
+import com.budget.backend.dto.PageResponse;
+import com.budget.backend.dto.TransactionResponse;
+import com.budget.backend.repository.TransactionTimelineRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+public class TransactionService {
+    
+    @Autowired
+    private TransactionTimelineRepository transactionTimelineRepository;
+    
+    @Transactional(readOnly = true)
+    public PageResponse<TransactionResponse> getTimeline(Long userId, String cursor, Integer limit) {
+        int pageSize = PageResponse.clampLimit(limit);
+        List<TransactionResponse> rows = transactionTimelineRepository.findPage(userId, KeysetCursor.decode(cursor), pageSize + 1);
+        return PageResponse.of(rows, pageSize, t -> new KeysetCursor(t.getDate(), t.getId(), t.getType()));
+    }
+    
+    public List<TransactionResponse> getRecentTransactions(Long userId, int count) {
+        return transactionTimelineRepository.findPage(userId, null, count);
+    }
+}
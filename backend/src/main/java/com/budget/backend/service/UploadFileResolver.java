@@ -0,0 +1,114 @@
+package com.budget.backend.service;
+
+
+import com.budget.backend.cache.BoundedTtlCache;
+import com.budget.backend.cache.CacheStats;
+import com.budget.backend.entity.StoredFile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Maps /uploads paths to files along with what the response needs (length, type, ETag), remembering it so
+// serving an avatar doesn't stat the file every time. Content-addressed files never change, so their
+// entries stay valid until the file is deleted (see FileUploadService).
+@Service
+public class UploadFileResolver {
+    
+    private static final Pattern VARIANT = Pattern.compile("(.+)_(\\d+)\\.jpg");
+    
+    public record UploadFile(Path file, long size, String contentType, String etag, boolean immutable) {
+    }
+    
+    private final Path root;
+    private final BoundedTtlCache<String, UploadFile> cache;
+    
+    public UploadFileResolver(@Value("${app.upload.dir}") String uploadDir,
+                              @Value("${app.upload.metadata-cache.max-size:10000}") int maxSize,
+                              @Value("${app.upload.metadata-cache.ttl-seconds:600}") long ttlSeconds) {
+        this.root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.cache = new BoundedTtlCache<>(maxSize, Duration.ofSeconds(ttlSeconds));
+    }
+    
+    // Returns null if there is nothing to serve at the path
+    public UploadFile resolve(String path) {
+        UploadFile cached = cache.get(path);
+        if (cached != null) {
+            return cached;
+        }
+        
+        UploadFile file = load(path);
+        if (file != null) {
+            cache.put(path, file);
+            return file;
+        }
+        
+        // A thumbnail that hasn't been generated yet: serve the original, but only until the variant exists
+        Matcher variant = VARIANT.matcher(path);
+        if (variant.matches()) {
+            for (String extension : new String[] {"jpg", "png"}) {
+                String original = variant.group(1) + "." + extension;
+                if (StoredFile.hashOf(original) != null) {
+                    UploadFile fallback = load(original);
+                    if (fallback != null) {
+                        return new UploadFile(fallback.file(), fallback.size(), fallback.contentType(), fallback.etag(), false);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+    
+    public void evict(String path) {
+        cache.invalidate(path);
+    }
+    
+    public CacheStats stats() {
+        return cache.stats();
+    }
+    
+    private UploadFile load(String path) {
+        Path file = root.resolve(path).normalize();
+        // Nothing outside the upload directory, and not the upload temp files
+        if (!file.startsWith(root) || file.startsWith(root.resolve("tmp"))) {
+            return null;
+        }
+        
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+        
+        String contentType = MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                .toString();
+        String name = file.getFileName().toString();
+        String etag;
+        boolean immutable;
+        if (StoredFile.isContentAddressed(root.relativize(file).toString().replace(File.separatorChar, '/'))) {
+            // The name is the hash (plus the variant size), so it identifies the content
+            etag = "\"" + name.substring(0, name.lastIndexOf('.')) + "\"";
+            immutable = true;
+        } else {
+            // Photos stored before content addressing; their names are unique but say nothing about the content
+            etag = "\"" + Long.toHexString(attributes.size()) + "-" + Long.toHexString(attributes.lastModifiedTime().toMillis()) + "\"";
+            immutable = false;
+        }
+        return new UploadFile(file, attributes.size(), contentType, etag, immutable);
+    }
+}
@@ -3,13 +3,16 @@ package com.budget.backend.service;
 
 import com.budget.backend.dto.ChangePasswordRequest;
 import com.budget.backend.dto.UpdateProfileRequest;
+import com.budget.backend.dto.UserResponse;
 import com.budget.backend.entity.User;
 import com.budget.backend.exception.BadRequestException;
 import com.budget.backend.exception.ResourceNotFoundException;
 import com.budget.backend.repository.UserRepository;
+import com.budget.backend.security.PrincipalCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 @Service
@@ -24,13 +27,44 @@ public class UserService {
     @Autowired
     private FileUploadService fileUploadService;
     
+    @Autowired
+    private PrincipalCache principalCache;
+    
+    @Autowired
+    private DashboardCache dashboardCache;
+    
+    @Autowired
+    private ThumbnailService thumbnailService;
+    
+    @Autowired
+    private AccountDeletionService accountDeletionService;
+    
     public User getCurrentUser(String email) {
         return userRepository.findByEmail(email)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
     }
     
+    public User getCurrentUser(Long userId) {
+        return userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    }
+    
+    @Transactional(readOnly = true)
+    public UserResponse getProfile(Long userId) {
+        return userRepository.findResponseById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found"));
+    }
+    
     public User updateProfile(String email, UpdateProfileRequest request) {
-        User user = getCurrentUser(email);
+        return updateProfile(getCurrentUser(email), request);
+    }
+    
+    public User updateProfile(Long userId, UpdateProfileRequest request) {
+        return updateProfile(getCurrentUser(userId), request);
+    }
+    
+    private User updateProfile(User user, UpdateProfileRequest request) {
+        String oldEmail = user.getEmail();
         
         // Check if new email already exists (and it's not the current user's email)
         if (!user.getEmail().equals(request.getEmail()) && 
@@ -41,27 +75,51 @@ public class UserService {
         user.setName(request.getName());
         user.setEmail(request.getEmail());
         
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        principalCache.evict(oldEmail);
+        return saved;
     }
     
+    @Transactional
     public User uploadProfilePhoto(String email, MultipartFile file) {
-        User user = getCurrentUser(email);
+        return uploadProfilePhoto(userRepository.findByEmailForUpdate(email)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found")), file);
+    }
+    
+    @Transactional
+    public User uploadProfilePhoto(Long userId, MultipartFile file) {
+        return uploadProfilePhoto(userRepository.findByIdForUpdate(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found")), file);
+    }
+    
+    // Runs in the caller's transaction with the user's row locked. The new file's reference, profile_photo and the
+    // old photo's release commit or roll back together (a file left behind by a rollback has no reference and is
+    // swept), and concurrent uploads for one user take turns instead of both releasing the same old photo.
+    private User uploadProfilePhoto(User user, MultipartFile file) {
+        // Upload new photo first, so re-uploading the same image never drops its last reference
+        String oldPhoto = user.getProfilePhoto();
+        String filename = fileUploadService.uploadFile(file);
+        user.setProfilePhoto(filename);
+        User saved = userRepository.save(user);
+        thumbnailService.generateAsync(filename);
         
         // Delete old photo if exists
-        if (user.getProfilePhoto() != null) {
-            fileUploadService.deleteFile(user.getProfilePhoto());
+        if (oldPhoto != null) {
+            fileUploadService.deleteFile(oldPhoto);
         }
         
-        // Upload new photo
-        String filename = fileUploadService.uploadFile(file);
-        user.setProfilePhoto(filename);
-        
-        return userRepository.save(user);
+        return saved;
     }
     
     public void changePassword(String email, ChangePasswordRequest request) {
-        User user = getCurrentUser(email);
-        
+        changePassword(getCurrentUser(email), request);
+    }
+    
+    public void changePassword(Long userId, ChangePasswordRequest request) {
+        changePassword(getCurrentUser(userId), request);
+    }
+    
+    private void changePassword(User user, ChangePasswordRequest request) {
         // Verify old password
         if (!passwordEncoder.matches(request.getOldPassword(), user.getPassword())) {
             throw new BadRequestException("Old password is incorrect");
@@ -70,22 +128,29 @@ public class UserService {
         // Update password
         user.setPassword(passwordEncoder.encode(request.getNewPassword()));
         userRepository.save(user);
+        principalCache.evict(user.getEmail());
     }
     
     public User updateCurrency(String email, String currency) {
-        User user = getCurrentUser(email);
+        return updateCurrency(getCurrentUser(email), currency);
+    }
+    
+    public User updateCurrency(Long userId, String currency) {
+        return updateCurrency(getCurrentUser(userId), currency);
+    }
+    
+    private User updateCurrency(User user, String currency) {
         user.setCurrency(currency);
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        dashboardCache.invalidate(user.getId());
+        return saved;
     }
     
     public void deleteAccount(String email) {
-        User user = getCurrentUser(email);
-        
-        // Delete profile photo if exists
-        if (user.getProfilePhoto() != null) {
-            fileUploadService.deleteFile(user.getProfilePhoto());
-        }
-        
-        userRepository.delete(user);
+        accountDeletionService.delete(getCurrentUser(email).getId());
+    }
+    
+    public void deleteAccount(Long userId) {
+        accountDeletionService.delete(userId);
     }
 }
@@ -0,0 +1,41 @@
+-- Schema as previously created by hibernate.ddl-auto=update.
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate).
+
+CREATE TABLE IF NOT EXISTS users (
+    id            BIGINT       NOT NULL AUTO_INCREMENT,
+    name          VARCHAR(255) NOT NULL,
+    email         VARCHAR(255) NOT NULL,
+    password      VARCHAR(255) NOT NULL,
+    profile_photo VARCHAR(255),
+    currency      VARCHAR(255) NOT NULL,
+    role          VARCHAR(255) NOT NULL,
+    created_at    DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_email UNIQUE (email)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS expenses (
+    id          BIGINT         NOT NULL AUTO_INCREMENT,
+    amount      DECIMAL(38, 2) NOT NULL,
+    category    VARCHAR(255)   NOT NULL,
+    description VARCHAR(255)   NOT NULL,
+    date        DATE           NOT NULL,
+    note        VARCHAR(500),
+    created_at  DATETIME(6),
+    user_id     BIGINT         NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_expenses_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS incomes (
+    id         BIGINT         NOT NULL AUTO_INCREMENT,
+    amount     DECIMAL(38, 2) NOT NULL,
+    category   VARCHAR(255)   NOT NULL,
+    source     VARCHAR(255)   NOT NULL,
+    date       DATE           NOT NULL,
+    note       VARCHAR(500),
+    created_at DATETIME(6),
+    user_id    BIGINT         NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_incomes_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE = InnoDB;
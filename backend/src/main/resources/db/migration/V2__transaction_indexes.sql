@@ -0,0 +1,8 @@
+-- Every list, page and total is scoped by user and ordered by date (then id for keyset paging).
+-- InnoDB appends the primary key to secondary indexes, so (user_id, category, date) also ends in id.
+
+CREATE INDEX idx_expenses_user_date_id ON expenses (user_id, date, id);
+CREATE INDEX idx_expenses_user_category_date ON expenses (user_id, category, date);
+
+CREATE INDEX idx_incomes_user_date_id ON incomes (user_id, date, id);
+CREATE INDEX idx_incomes_user_category_date ON incomes (user_id, category, date);
@@ -0,0 +1,23 @@
+-- Per user, month, category and kind running totals so dashboards and reports read a few rows
+-- instead of summing the user's whole history. period is yyyymm, e.g. 202610.
+
+CREATE TABLE monthly_rollups (
+    user_id     BIGINT         NOT NULL,
+    kind        VARCHAR(10)    NOT NULL,
+    period      INT            NOT NULL,
+    category    VARCHAR(255)   NOT NULL,
+    total       DECIMAL(38, 2) NOT NULL,
+    entry_count BIGINT         NOT NULL,
+    PRIMARY KEY (user_id, kind, period, category),
+    CONSTRAINT fk_monthly_rollups_user FOREIGN KEY (user_id) REFERENCES users (id)
+) ENGINE = InnoDB;
+
+INSERT INTO monthly_rollups (user_id, kind, period, category, total, entry_count)
+SELECT user_id, 'EXPENSE', EXTRACT(YEAR FROM date) * 100 + EXTRACT(MONTH FROM date), category, SUM(amount), COUNT(*)
+FROM expenses
+GROUP BY user_id, EXTRACT(YEAR FROM date) * 100 + EXTRACT(MONTH FROM date), category;
+
+INSERT INTO monthly_rollups (user_id, kind, period, category, total, entry_count)
+SELECT user_id, 'INCOME', EXTRACT(YEAR FROM date) * 100 + EXTRACT(MONTH FROM date), category, SUM(amount), COUNT(*)
+FROM incomes
+GROUP BY user_id, EXTRACT(YEAR FROM date) * 100 + EXTRACT(MONTH FROM date), category;
@@ -0,0 +1,13 @@
+-- Pooled table-backed id generation (see IdSequences). When Hibernate reads a next_val of V it moves it on
+-- by the allocation size (50) and hands out ids V - 48 to V + 1, so each row is seeded at the current
+-- maximum id + 49. The AUTO_INCREMENT columns are left in place but no longer used.
+
+CREATE TABLE id_sequences (
+    sequence_name VARCHAR(255) NOT NULL,
+    next_val      BIGINT,
+    PRIMARY KEY (sequence_name)
+) ENGINE = InnoDB;
+
+INSERT INTO id_sequences (sequence_name, next_val) SELECT 'users', COALESCE(MAX(id), 0) + 49 FROM users;
+INSERT INTO id_sequences (sequence_name, next_val) SELECT 'expenses', COALESCE(MAX(id), 0) + 49 FROM expenses;
+INSERT INTO id_sequences (sequence_name, next_val) SELECT 'incomes', COALESCE(MAX(id), 0) + 49 FROM incomes;
@@ -0,0 +1,13 @@
+-- Content-addressed uploads (see FileUploadService). Files live under <upload dir>/<h[0..2]>/<h[2..4]>/<sha256>.<ext>
+-- and are shared by every reference to the same bytes; ref_count tracks how many users point at each one.
+-- Photos uploaded before this change keep their flat UUID names and are not tracked here.
+
+CREATE TABLE stored_files (
+    sha256       VARCHAR(64)  NOT NULL,
+    path         VARCHAR(255) NOT NULL,
+    content_type VARCHAR(50)  NOT NULL,
+    size         BIGINT       NOT NULL,
+    ref_count    INT          NOT NULL,
+    created_at   DATETIME(6),
+    PRIMARY KEY (sha256)
+) ENGINE = InnoDB;
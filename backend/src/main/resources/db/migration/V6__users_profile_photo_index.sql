@@ -0,0 +1,2 @@
+-- The orphan upload sweep (OrphanFileSweeper) looks up which files are still some user's profile photo
+CREATE INDEX idx_users_profile_photo ON users (profile_photo);
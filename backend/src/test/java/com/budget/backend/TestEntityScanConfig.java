@@ -0,0 +1,12 @@
+package com.budget.backend;
+
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Configuration;
+
+// Test contexts only: test classes sit on the application's component scan path, so this is picked up by every
+// @SpringBootTest. It keeps the benchmarks' scratch entities (com.budget.backend.benchmark) out of the
+// application's persistence unit, where ddl-auto=validate would fail on their tables.
+@Configuration
+@EntityScan("com.budget.backend.entity")
+public class TestEntityScanConfig {
+}
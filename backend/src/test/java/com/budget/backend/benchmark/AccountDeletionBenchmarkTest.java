@@ -0,0 +1,111 @@
+package com.budget.backend.benchmark;
+
+import com.budget.backend.entity.User;
+import com.budget.backend.repository.UserRepository;
+import com.budget.backend.service.AccountDeletionService;
+import com.budget.backend.service.TransactionImportService;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+// AccountDeletionService.delete on an account with 12k transactions (6k expenses, 6k incomes, imported
+// with their rollups): the time it takes and the JDBC statements it executes on the calling thread, a
+// batch counting once. Against the given database, e.g.:
+//   mvn test -Pbenchmark -Dtest=AccountDeletionBenchmarkTest -Dbenchmark.db.url="jdbc:mysql://localhost:3306/budget_bench?createDatabaseIfNotExist=true&rewriteBatchedStatements=true"
+//            -Dbenchmark.db.user=root -Dbenchmark.db.password=root
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+@SpringBootTest(properties = {
+        "spring.datasource.url=${benchmark.db.url}",
+        "spring.datasource.username=${benchmark.db.user:root}",
+        "spring.datasource.password=${benchmark.db.password:root}",
+        "spring.jpa.show-sql=false",
+        "management.server.port=0"})
+class AccountDeletionBenchmarkTest {
+    
+    private static final Logger log = LoggerFactory.getLogger(AccountDeletionBenchmarkTest.class);
+    
+    private static final int TRANSACTIONS = 12_000;
+    
+    @Autowired
+    private AccountDeletionService accountDeletionService;
+    
+    @Autowired
+    private TransactionImportService transactionImportService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private DataSource dataSource;
+    
+    private final StatementCounter counter = new StatementCounter();
+    private Long userId;
+    
+    @BeforeEach
+    void createAccount() throws IOException {
+        User user = new User();
+        user.setName("Deletion benchmark");
+        user.setEmail("deletion-bench-" + System.nanoTime() + "@test.local");
+        user.setPassword("x");
+        userId = userRepository.save(user).getId();
+        assertEquals(TRANSACTIONS, transactionImportService.importCsv(userId,
+                new ByteArrayInputStream(ImportBenchmarkTest.csv(TRANSACTIONS))).getImported());
+        ((ProxyDataSource) dataSource).getProxyConfig().getQueryListener().addListener(counter);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        ((ProxyDataSource) dataSource).getProxyConfig().getQueryListener().getListeners().remove(counter);
+        if (userRepository.existsById(userId)) {
+            accountDeletionService.delete(userId);
+        }
+    }
+    
+    @Test
+    void deleteAccount() {
+        counter.thread = Thread.currentThread();
+        long start = System.nanoTime();
+        accountDeletionService.delete(userId);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        counter.thread = null;
+        
+        assertFalse(userRepository.existsById(userId));
+        log.info("Account deletion, {} transactions: {} ms, {} statements", TRANSACTIONS, millis, counter.statements);
+    }
+    
+    private static class StatementCounter implements QueryExecutionListener {
+        
+        private volatile Thread thread;
+        private int statements;
+        
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+        
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            if (thread == Thread.currentThread()) {
+                statements++;
+            }
+        }
+    }
+}
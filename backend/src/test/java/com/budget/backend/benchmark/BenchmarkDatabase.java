@@ -0,0 +1,37 @@
+package com.budget.backend.benchmark;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.jpa.HibernatePersistenceProvider;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.persistenceunit.PersistenceManagedTypes;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Session factories over the benchmarks' scratch entities, on the database named by -Dbenchmark.db.url
+// (tables created on start and dropped on close). Bootstrapped as a JPA persistence unit because only that
+// path reads the jakarta.persistence.jdbc.* settings; a native Configuration wants the deprecated ones.
+final class BenchmarkDatabase {
+    
+    private BenchmarkDatabase() {
+    }
+    
+    static SessionFactory sessionFactory(Map<String, Object> settings, Class<?>... entities) {
+        Map<String, Object> properties = new HashMap<>(settings);
+        properties.put(AvailableSettings.JAKARTA_JDBC_URL, System.getProperty("benchmark.db.url"));
+        properties.put(AvailableSettings.JAKARTA_JDBC_USER, System.getProperty("benchmark.db.user", "root"));
+        properties.put(AvailableSettings.JAKARTA_JDBC_PASSWORD, System.getProperty("benchmark.db.password", "root"));
+        properties.put(AvailableSettings.HBM2DDL_AUTO, "create-drop");
+        
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+        factory.setPersistenceUnitName("benchmark");
+        factory.setPersistenceProviderClass(HibernatePersistenceProvider.class);
+        factory.setManagedTypes(PersistenceManagedTypes.of(Arrays.stream(entities).map(Class::getName).toList(), List.of()));
+        factory.setJpaPropertyMap(properties);
+        factory.afterPropertiesSet();
+        return factory.getObject().unwrap(SessionFactory.class);
+    }
+}
@@ -0,0 +1,216 @@
+package com.budget.backend.benchmark;
+
+import jakarta.persistence.*;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Insert throughput through Hibernate with IDENTITY ids (one INSERT round trip per row) versus the pooled
+// table generator with JDBC batching and ordered inserts, for a flat bulk insert and a parent/children cascade.
+// Uses its own scratch tables (created and dropped here) in the given database, e.g.:
+//   mvn test -Pbenchmark -Dbenchmark.db.url="jdbc:mysql://localhost:3306/budget_bench?createDatabaseIfNotExist=true&rewriteBatchedStatements=true"
+//            -Dbenchmark.db.user=root -Dbenchmark.db.password=root
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+class IdGenerationBenchmarkTest {
+    
+    private static final Logger log = LoggerFactory.getLogger(IdGenerationBenchmarkTest.class);
+    
+    private static final int BULK_ROWS = 20000;
+    private static final int PARENTS = 500;
+    private static final int CHILDREN_PER_PARENT = 20;
+    private static final int FLUSH_EVERY = 500;
+    
+    @Test
+    void insertThroughput() {
+        report("bulk insert", BULK_ROWS,
+                time(IdentityRow.class, null, false, s -> bulk(s, IdentityRow::new)),
+                time(PooledRow.class, null, true, s -> bulk(s, PooledRow::new)));
+        
+        report("cascade insert", PARENTS * (CHILDREN_PER_PARENT + 1),
+                time(IdentityParent.class, IdentityChild.class, false, s -> cascade(s, IdentityParent::new, IdentityChild::new)),
+                time(PooledParent.class, PooledChild.class, true, s -> cascade(s, PooledParent::new, PooledChild::new)));
+    }
+    
+    private static void report(String scenario, int rows, long identityNanos, long pooledNanos) {
+        log.info("{}, {} rows: IDENTITY {} rows/s, pooled + batching {} rows/s ({}x)", scenario, rows,
+                rows * 1_000_000_000L / identityNanos, rows * 1_000_000_000L / pooledNanos,
+                String.format("%.1f", (double) identityNanos / pooledNanos));
+    }
+    
+    private static long time(Class<?> entity, Class<?> child, boolean batching, Consumer<EntityManager> work) {
+        Map<String, Object> settings = new HashMap<>();
+        if (batching) {
+            settings.put(AvailableSettings.STATEMENT_BATCH_SIZE, "50");
+            settings.put(AvailableSettings.ORDER_INSERTS, "true");
+        }
+        Class<?>[] entities = child == null ? new Class<?>[] {entity} : new Class<?>[] {entity, child};
+        
+        try (SessionFactory factory = BenchmarkDatabase.sessionFactory(settings, entities)) {
+            // Warm up the connection, statement cache and generator before timing
+            inTransaction(factory, em -> em.persist(newInstance(entity)));
+            
+            long start = System.nanoTime();
+            inTransaction(factory, work);
+            long elapsed = System.nanoTime() - start;
+            
+            inTransaction(factory, em -> assertEquals(1L + (child == null ? BULK_ROWS : PARENTS),
+                    em.createQuery("SELECT COUNT(e) FROM " + entity.getSimpleName() + " e", Long.class).getSingleResult()));
+            return elapsed;
+        }
+    }
+    
+    private static void inTransaction(SessionFactory factory, Consumer<EntityManager> work) {
+        factory.inTransaction(session -> work.accept(session));
+    }
+    
+    private static Object newInstance(Class<?> type) {
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static void bulk(EntityManager em, Supplier<? extends Row> factory) {
+        for (int i = 0; i < BULK_ROWS; i++) {
+            Row row = factory.get();
+            row.fill(i);
+            em.persist(row);
+            if ((i + 1) % FLUSH_EVERY == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+    }
+    
+    private static <C extends Row> void cascade(EntityManager em, Supplier<? extends Parent<C>> parents,
+                                                Supplier<C> children) {
+        for (int p = 0; p < PARENTS; p++) {
+            Parent<C> parent = parents.get();
+            parent.name = "Parent " + p;
+            for (int c = 0; c < CHILDREN_PER_PARENT; c++) {
+                C child = children.get();
+                child.fill(c);
+                parent.add(child);
+            }
+            em.persist(parent);
+            if ((p + 1) % (FLUSH_EVERY / CHILDREN_PER_PARENT) == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+    }
+    
+    @MappedSuperclass
+    abstract static class Row {
+        BigDecimal amount;
+        String category;
+        String description;
+        LocalDate date;
+        
+        void fill(int i) {
+            amount = BigDecimal.valueOf(10 + i % 90);
+            category = "Food";
+            description = "Row " + i;
+            date = LocalDate.of(2024, 1, 1).plusDays(i % 365);
+        }
+    }
+    
+    @MappedSuperclass
+    abstract static class Parent<C extends Row> {
+        String name;
+        
+        abstract void add(C child);
+    }
+    
+    @Entity(name = "IdentityRow")
+    @Table(name = "bench_identity_row")
+    static class IdentityRow extends Row {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+    }
+    
+    @Entity(name = "PooledRow")
+    @Table(name = "bench_pooled_row")
+    static class PooledRow extends Row {
+        @Id
+        @GeneratedValue(strategy = GenerationType.TABLE, generator = "bench_row")
+        @TableGenerator(name = "bench_row", table = "bench_id_sequences", pkColumnValue = "rows", allocationSize = 50)
+        Long id;
+    }
+    
+    @Entity(name = "IdentityChild")
+    @Table(name = "bench_identity_child")
+    static class IdentityChild extends Row {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+        
+        @ManyToOne(fetch = FetchType.LAZY)
+        IdentityParent parent;
+    }
+    
+    @Entity(name = "PooledChild")
+    @Table(name = "bench_pooled_child")
+    static class PooledChild extends Row {
+        @Id
+        @GeneratedValue(strategy = GenerationType.TABLE, generator = "bench_child")
+        @TableGenerator(name = "bench_child", table = "bench_id_sequences", pkColumnValue = "children", allocationSize = 50)
+        Long id;
+        
+        @ManyToOne(fetch = FetchType.LAZY)
+        PooledParent parent;
+    }
+    
+    @Entity(name = "IdentityParent")
+    @Table(name = "bench_identity_parent")
+    static class IdentityParent extends Parent<IdentityChild> {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        Long id;
+        
+        @OneToMany(mappedBy = "parent", cascade = CascadeType.ALL)
+        List<IdentityChild> children = new ArrayList<>();
+        
+        @Override
+        void add(IdentityChild child) {
+            child.parent = this;
+            children.add(child);
+        }
+    }
+    
+    @Entity(name = "PooledParent")
+    @Table(name = "bench_pooled_parent")
+    static class PooledParent extends Parent<PooledChild> {
+        @Id
+        @GeneratedValue(strategy = GenerationType.TABLE, generator = "bench_parent")
+        @TableGenerator(name = "bench_parent", table = "bench_id_sequences", pkColumnValue = "parents", allocationSize = 50)
+        Long id;
+        
+        @OneToMany(mappedBy = "parent", cascade = CascadeType.ALL)
+        List<PooledChild> children = new ArrayList<>();
+        
+        @Override
+        void add(PooledChild child) {
+            child.parent = this;
+            children.add(child);
+        }
+    }
+}
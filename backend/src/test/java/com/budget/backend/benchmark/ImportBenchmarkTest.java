@@ -0,0 +1,96 @@
+package com.budget.backend.benchmark;
+
+import com.budget.backend.dto.ImportResult;
+import com.budget.backend.entity.User;
+import com.budget.backend.repository.UserRepository;
+import com.budget.backend.service.AccountDeletionService;
+import com.budget.backend.service.TransactionImportService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// TransactionImportService.importCsv (POST /api/import) on a 100k-row CSV, half expenses and half incomes over two
+// years: parsing, validation, the batched inserts and the rollup deltas of every 1000-row chunk. The user it
+// imports into is deleted afterwards. Against the given database, e.g.:
+//   mvn test -Pbenchmark -Dtest=ImportBenchmarkTest -Dbenchmark.db.url="jdbc:mysql://localhost:3306/budget_bench?createDatabaseIfNotExist=true&rewriteBatchedStatements=true"
+//            -Dbenchmark.db.user=root -Dbenchmark.db.password=root
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+@SpringBootTest(properties = {
+        "spring.datasource.url=${benchmark.db.url}",
+        "spring.datasource.username=${benchmark.db.user:root}",
+        "spring.datasource.password=${benchmark.db.password:root}",
+        "spring.jpa.show-sql=false",
+        "management.server.port=0"})
+class ImportBenchmarkTest {
+    
+    private static final Logger log = LoggerFactory.getLogger(ImportBenchmarkTest.class);
+    
+    private static final int ROWS = 100_000;
+    private static final String[] CATEGORIES = {"Food", "Rent", "Travel", "Fun", "Bills"};
+    
+    @Autowired
+    private TransactionImportService transactionImportService;
+    
+    @Autowired
+    private AccountDeletionService accountDeletionService;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    private Long userId;
+    
+    @BeforeEach
+    void createUser() {
+        User user = new User();
+        user.setName("Import benchmark");
+        user.setEmail("import-bench-" + System.nanoTime() + "@test.local");
+        user.setPassword("x");
+        userId = userRepository.save(user).getId();
+    }
+    
+    @AfterEach
+    void deleteUser() {
+        accountDeletionService.delete(userId);
+    }
+    
+    @Test
+    void importThroughput() throws IOException {
+        byte[] csv = csv(ROWS);
+        
+        long start = System.nanoTime();
+        ImportResult result = transactionImportService.importCsv(userId, new ByteArrayInputStream(csv));
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        
+        assertEquals(ROWS, result.getImported());
+        assertEquals(0, result.getFailed());
+        log.info("CSV import, {} rows ({} KB): {} ms, {} rows/s", ROWS, csv.length / 1024, millis, ROWS * 1000L / millis);
+    }
+    
+    static byte[] csv(int rows) {
+        StringBuilder csv = new StringBuilder("Date,Type,Category,Description,Amount,Note\n");
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < rows; i++) {
+            csv.append(start.plusDays(i % 730)).append(',')
+                    .append(i % 2 == 0 ? "Expense" : "Income").append(',')
+                    .append(CATEGORIES[i % CATEGORIES.length]).append(',')
+                    .append("Row ").append(i).append(',')
+                    .append(10 + i % 990).append('.').append(i % 100 < 10 ? "0" : "").append(i % 100).append(',')
+                    .append(i % 10 == 0 ? "imported" : "").append('\n');
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,144 @@
+package com.budget.backend.benchmark;
+
+import com.budget.backend.dto.ExpenseResponse;
+import jakarta.persistence.*;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// getAllExpenses for a user with 10k expenses, the old way (managed entities in a read-write transaction) versus
+// a constructor projection into ExpenseResponse in a read-only session with manual flush. Reports latency and
+// bytes allocated per call. Uses scratch tables shaped like users/expenses, created and dropped here, e.g.:
+//   mvn test -Pbenchmark -Dtest=ReadProjectionBenchmarkTest -Dbenchmark.db.url="jdbc:mysql://localhost:3306/budget_bench?createDatabaseIfNotExist=true"
+//            -Dbenchmark.db.user=root -Dbenchmark.db.password=root
+@Tag("benchmark")
+@EnabledIfSystemProperty(named = "benchmark.db.url", matches = ".+")
+class ReadProjectionBenchmarkTest {
+    
+    private static final Logger log = LoggerFactory.getLogger(ReadProjectionBenchmarkTest.class);
+    
+    private static final int ROWS = 10000;
+    private static final int WARMUP = 10;
+    private static final int ITERATIONS = 30;
+    
+    @Test
+    void entityVersusProjection() {
+        try (SessionFactory factory = BenchmarkDatabase.sessionFactory(
+                Map.of(AvailableSettings.STATEMENT_BATCH_SIZE, "50"), BenchUser.class, BenchExpense.class)) {
+            Long userId = seed(factory);
+            
+            Result entities = measure(factory, false, session -> session.createQuery(
+                    "SELECT e FROM BenchExpense e WHERE e.user.id = :userId ORDER BY e.date DESC", BenchExpense.class)
+                    .setParameter("userId", userId)
+                    .getResultList());
+            Result projection = measure(factory, true, session -> session.createQuery(
+                    "SELECT new com.budget.backend.dto.ExpenseResponse(e.id, e.amount, e.category, e.description, e.date, e.note, e.createdAt) "
+                            + "FROM BenchExpense e WHERE e.user.id = :userId ORDER BY e.date DESC", ExpenseResponse.class)
+                    .setParameter("userId", userId)
+                    .getResultList());
+            
+            log.info(String.format("getAllExpenses, %d rows: entities %.1f ms, %.1f MB/call; projection %.1f ms, %.1f MB/call "
+                            + "(%.1fx faster, %.1fx less allocation)", ROWS,
+                    entities.millis, entities.megabytes, projection.millis, projection.megabytes,
+                    entities.millis / projection.millis, entities.megabytes / projection.megabytes));
+        }
+    }
+    
+    private record Result(double millis, double megabytes) {
+    }
+    
+    // Runs the read the way the service would: a read-write transaction, or a read-only one with manual flush
+    private static Result measure(SessionFactory factory, boolean readOnly, Function<Session, List<?>> read) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long nanos = 0;
+        long bytes = 0;
+        for (int i = 0; i < WARMUP + ITERATIONS; i++) {
+            long startBytes = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            factory.inTransaction(session -> {
+                if (readOnly) {
+                    session.setDefaultReadOnly(true);
+                    session.setHibernateFlushMode(FlushMode.MANUAL);
+                }
+                assertEquals(ROWS, read.apply(session).size());
+            });
+            if (i >= WARMUP) {
+                nanos += System.nanoTime() - start;
+                bytes += threads.getThreadAllocatedBytes(threadId) - startBytes;
+            }
+        }
+        return new Result(nanos / 1e6 / ITERATIONS, bytes / 1048576.0 / ITERATIONS);
+    }
+    
+    private static Long seed(SessionFactory factory) {
+        return factory.fromTransaction(session -> {
+            BenchUser user = new BenchUser();
+            user.name = "Bench";
+            session.persist(user);
+            Long userId = user.id;
+            for (int i = 0; i < ROWS; i++) {
+                BenchExpense expense = new BenchExpense();
+                expense.amount = BigDecimal.valueOf(10 + i % 90);
+                expense.category = "Food";
+                expense.description = "Row " + i;
+                expense.date = LocalDate.of(2024, 1, 1).plusDays(i % 365);
+                expense.createdAt = LocalDateTime.now();
+                expense.user = user;
+                session.persist(expense);
+                if ((i + 1) % 500 == 0) {
+                    session.flush();
+                    session.clear();
+                    user = session.getReference(BenchUser.class, userId);
+                }
+            }
+            return userId;
+        });
+    }
+    
+    @Entity(name = "BenchUser")
+    @Table(name = "bench_read_users")
+    static class BenchUser {
+        @Id
+        @GeneratedValue(strategy = GenerationType.TABLE, generator = "bench_read_user")
+        @TableGenerator(name = "bench_read_user", table = "bench_read_id_sequences", pkColumnValue = "users", allocationSize = 50)
+        Long id;
+        
+        String name;
+    }
+    
+    @Entity(name = "BenchExpense")
+    @Table(name = "bench_read_expenses", indexes = @Index(columnList = "user_id, date"))
+    static class BenchExpense {
+        @Id
+        @GeneratedValue(strategy = GenerationType.TABLE, generator = "bench_read_expense")
+        @TableGenerator(name = "bench_read_expense", table = "bench_read_id_sequences", pkColumnValue = "expenses", allocationSize = 50)
+        Long id;
+        
+        BigDecimal amount;
+        String category;
+        String description;
+        LocalDate date;
+        String note;
+        LocalDateTime createdAt;
+        
+        @ManyToOne(fetch = FetchType.LAZY)
+        BenchUser user;
+    }
+}
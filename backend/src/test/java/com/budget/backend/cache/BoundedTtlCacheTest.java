@@ -0,0 +1,60 @@
+package com.budget.backend.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedTtlCacheTest {
+    
+    private final BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, Duration.ofMinutes(5));
+    
+    @Test
+    void loadedValueIsCached() {
+        assertEquals("v1", cache.getOrLoad("a", key -> "v1"));
+        assertEquals("v1", cache.getOrLoad("a", key -> "v2"));
+    }
+    
+    @Test
+    void invalidationDuringLoadKeepsLoadedValueOutOfCache() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        CompletableFuture<String> load = CompletableFuture.supplyAsync(() -> cache.getOrLoad("a", key -> {
+            loading.countDown();
+            await(invalidated);
+            return "stale";
+        }));
+        
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        cache.invalidate("a");
+        invalidated.countDown();
+        
+        // The caller still gets what it loaded, but the next lookup loads again
+        assertEquals("stale", load.get(5, TimeUnit.SECONDS));
+        assertNull(cache.get("a"));
+        assertEquals("fresh", cache.getOrLoad("a", key -> "fresh"));
+    }
+    
+    @Test
+    void invalidateAllDuringLoadKeepsLoadedValueOutOfCache() {
+        assertEquals("stale", cache.getOrLoad("a", key -> {
+            cache.invalidateAll();
+            return "stale";
+        }));
+        assertNull(cache.get("a"));
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.budget.backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.UserCredentialsDataSourceAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Routes against three embedded H2 databases that each answer with their own name
+class ReadWriteRoutingDataSourceTest {
+    
+    private HikariDataSource primary;
+    private HikariDataSource replica0;
+    private HikariDataSource replica1;
+    private ReadWriteRoutingDataSource routing;
+    private Long currentUser;
+    
+    private JdbcTemplate jdbc;
+    private TransactionTemplate writeTx;
+    private TransactionTemplate readTx;
+    
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica0 = database("replica0");
+        replica1 = database("replica1");
+        routing = new ReadWriteRoutingDataSource(primary, List.of(replica0, replica1), () -> currentUser,
+                Duration.ofMillis(300), Duration.ofHours(1));
+        
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+        writeTx = new TransactionTemplate(transactionManager);
+        readTx = new TransactionTemplate(transactionManager);
+        readTx.setReadOnly(true);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        routing.close();
+        primary.close();
+    }
+    
+    @Test
+    void readOnlyTransactionsUseReplicasInTurn() {
+        Set<String> nodes = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            nodes.add(readTx.execute(status -> node()));
+        }
+        
+        assertEquals(Set.of("replica0", "replica1"), nodes);
+        assertEquals("primary", writeTx.execute(status -> node()));
+        assertEquals("primary", node());
+    }
+    
+    @Test
+    void readsFollowingOwnWriteStayOnPrimaryForTheWindow() throws InterruptedException {
+        currentUser = 7L;
+        writeTx.execute(status -> node());
+        assertEquals("primary", readTx.execute(status -> node()));
+        
+        currentUser = 8L;
+        assertEquals("replica", readTx.execute(status -> node()).substring(0, 7));
+        
+        Thread.sleep(400);
+        currentUser = 7L;
+        assertEquals("replica", readTx.execute(status -> node()).substring(0, 7));
+    }
+    
+    @Test
+    void readYourWritesWindowStartsAtCommit() {
+        currentUser = 7L;
+        writeTx.execute(status -> {
+            node();
+            sleep(400);
+            return null;
+        });
+        assertEquals("primary", readTx.execute(status -> node()));
+        
+        // A write that rolls back leaves nothing to read back
+        sleep(400);
+        writeTx.execute(status -> {
+            node();
+            status.setRollbackOnly();
+            return null;
+        });
+        assertEquals("replica", readTx.execute(status -> node()).substring(0, 7));
+    }
+    
+    @Test
+    void readsCanBeKeptOnPrimary() {
+        assertEquals("primary", readTx.execute(status -> ReadWriteRoutingDataSource.onPrimary(this::node)));
+        assertEquals("replica", readTx.execute(status -> node()).substring(0, 7));
+    }
+    
+    @Test
+    void unreachableReplicasFallBackToPrimary() {
+        replica0.close();
+        for (int i = 0; i < 4; i++) {
+            assertEquals("replica1", readTx.execute(status -> node()));
+        }
+        
+        replica1.close();
+        assertEquals("primary", readTx.execute(status -> node()));
+    }
+    
+    @Test
+    void connectionsAskedForWithCredentialsAreRoutedTheSameWay() {
+        UserCredentialsDataSourceAdapter withCredentials = new UserCredentialsDataSourceAdapter();
+        withCredentials.setTargetDataSource(routing);
+        withCredentials.setUsername("sa");
+        withCredentials.setPassword("");
+        JdbcTemplate jdbc = new JdbcTemplate(withCredentials);
+        
+        assertEquals("primary", jdbc.queryForObject("SELECT name FROM node", String.class));
+        assertEquals("replica", readTx.execute(status -> jdbc.queryForObject("SELECT name FROM node", String.class))
+                .substring(0, 7));
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private String node() {
+        return jdbc.queryForObject("SELECT name FROM node", String.class);
+    }
+    
+    private static HikariDataSource database(String name) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + name + "-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setPassword("");
+        dataSource.setMaximumPoolSize(2);
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE node (name VARCHAR(20))");
+        jdbc.update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+}
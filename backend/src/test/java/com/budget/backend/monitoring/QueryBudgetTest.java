@@ -0,0 +1,108 @@
+package com.budget.backend.monitoring;
+
+import com.budget.backend.repository.UserRepository;
+import com.budget.backend.service.UserService;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Calls the endpoints that declare a @QueryBudget with strict budgets on, so any change that makes
+// one of them issue more SQL fails here with a 500 from the statement that went over. Runs on an in-memory H2
+// database in MySQL mode, so it needs no database server; the counts don't depend on the engine.
+@SpringBootTest(properties = {
+        "app.sql.query-budget.strict=true",
+        "management.server.port=0",
+        "spring.datasource.url=jdbc:h2:mem:query-budget;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"})
+@AutoConfigureMockMvc
+@Import(QueryBudgetTest.OverBudgetController.class)
+class QueryBudgetTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private UserService userService;
+    
+    private String email;
+    private String token;
+    
+    @BeforeEach
+    void registerUser() throws Exception {
+        email = "budget-" + System.nanoTime() + "@test.local";
+        String body = mockMvc.perform(post("/api/auth/register")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Budget\",\"email\":\"" + email + "\",\"password\":\"secret123\",\"confirmPassword\":\"secret123\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        token = "Bearer " + JsonPath.read(body, "$.token");
+    }
+    
+    @AfterEach
+    void deleteUser() {
+        userService.deleteAccount(email);
+    }
+    
+    @Test
+    void endpointsStayWithinTheirBudgets() throws Exception {
+        String expense = "{\"amount\":12.50,\"category\":\"Food\",\"description\":\"Lunch\",\"date\":\"2026-10-01\"}";
+        String income = "{\"amount\":100,\"category\":\"Salary\",\"source\":\"Work\",\"date\":\"2026-10-01\"}";
+        
+        String created = mockMvc.perform(post("/api/expenses").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON).content(expense))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Number expenseId = JsonPath.read(created, "$.id");
+        mockMvc.perform(put("/api/expenses/" + expenseId).header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON).content(expense.replace("Food", "Travel")))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/incomes").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON).content(income))
+                .andExpect(status().isOk());
+        
+        for (String url : new String[] {"/api/expenses", "/api/expenses?limit=10", "/api/expenses/" + expenseId,
+                "/api/incomes", "/api/transactions", "/api/user/profile", "/api/user/dashboard",
+                "/api/user/reports/monthly"}) {
+            mockMvc.perform(get(url).header("Authorization", token)).andExpect(status().isOk());
+        }
+    }
+    
+    @Test
+    void exceedingTheBudgetFailsTheRequest() throws Exception {
+        mockMvc.perform(get("/test/over-budget").header("Authorization", token))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.error", containsString("would run more than 1 statements")));
+    }
+    
+    @RestController
+    static class OverBudgetController {
+        
+        @Autowired
+        private UserRepository userRepository;
+        
+        @GetMapping("/test/over-budget")
+        @QueryBudget(1)
+        long overBudget() {
+            return userRepository.count() + userRepository.count();
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.budget.backend.repository;
+
+import com.budget.backend.dto.PageResponse;
+import com.budget.backend.dto.TransactionFilter;
+import com.budget.backend.entity.MonthlyRollup;
+import com.budget.backend.service.ExpenseService;
+import com.budget.backend.service.IncomeService;
+import com.budget.backend.service.MonthlyRollupService;
+import com.budget.backend.service.TransactionService;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Calls the services behind each hot listing, page, report and total against a seeded local MySQL, captures the
+// SQL they generate (with its bound parameters) from the monitored DataSource, and fails when EXPLAIN shows a
+// full table scan or a filesort. Needs a scratch database, e.g.:
+//   mvn test -Dtest=QueryPlanTest -Dexplain.db.url="jdbc:mysql://localhost:3306/budget_explain?createDatabaseIfNotExist=true"
+//            -Dexplain.db.user=root -Dexplain.db.password=root
+@EnabledIfSystemProperty(named = "explain.db.url", matches = ".+")
+@SpringBootTest(properties = {
+        "spring.datasource.url=${explain.db.url}",
+        "spring.datasource.username=${explain.db.user:root}",
+        "spring.datasource.password=${explain.db.password:root}",
+        "management.server.port=0"})
+class QueryPlanTest {
+    
+    private static final String EMAIL_PATTERN = "explain-%@test.local";
+    private static final int USERS = 40;
+    private static final int ROWS_PER_USER = 250;
+    private static final String[] CATEGORIES = {"Food", "Rent", "Travel", "Fun", "Bills"};
+    private static final int PAGE_SIZE = 50;
+    
+    // Unpaged lists the (user_id, date, id) index can't return in order: several categories (read as ranges of
+    // (user_id, category, date), then merged by a sort) and the amount sorts. They return every matching row, so
+    // the sort is proportional to the response. Paging is date-ordered only, and every paged query stays strict.
+    private static final Set<String> SORTED_AFTER_READ =
+            Set.of("several categories", "sorted by amount_desc", "sorted by amount_asc");
+    
+    @Autowired
+    private DataSource dataSource;
+    
+    @Autowired
+    private ExpenseService expenseService;
+    
+    @Autowired
+    private IncomeService incomeService;
+    
+    @Autowired
+    private TransactionService transactionService;
+    
+    @Autowired
+    private MonthlyRollupService monthlyRollupService;
+    
+    private JdbcTemplate jdbc;
+    private Long userId;
+    
+    private final CapturingListener captured = new CapturingListener();
+    private final List<String> problems = new ArrayList<>();
+    
+    @BeforeEach
+    void seed() {
+        ((ProxyDataSource) dataSource).getProxyConfig().getQueryListener().addListener(captured);
+        jdbc = new JdbcTemplate(dataSource);
+        cleanUp();
+        
+        for (int u = 0; u < USERS; u++) {
+            jdbc.update("INSERT INTO users (name, email, password, currency, role) VALUES (?, ?, 'x', 'USD', 'USER')",
+                    "Explain " + u, EMAIL_PATTERN.replace("%", String.valueOf(u)));
+        }
+        List<Long> owners = jdbc.queryForList("SELECT id FROM users WHERE email LIKE ? ORDER BY id", Long.class, EMAIL_PATTERN);
+        owners.forEach(this::seedTransactions);
+        userId = owners.get(owners.size() - 1);
+        
+        for (String table : new String[] {"expenses", "incomes"}) {
+            String kind = table.equals("expenses") ? "'EXPENSE'" : "'INCOME'";
+            jdbc.update("INSERT INTO monthly_rollups (user_id, kind, period, category, total, entry_count) "
+                    + "SELECT user_id, " + kind + ", EXTRACT(YEAR FROM date) * 100 + EXTRACT(MONTH FROM date), category, SUM(amount), COUNT(*) "
+                    + "FROM " + table + " WHERE user_id IN " + owners() + " "
+                    + "GROUP BY user_id, EXTRACT(YEAR FROM date) * 100 + EXTRACT(MONTH FROM date), category");
+        }
+        jdbc.execute("ANALYZE TABLE expenses, incomes, monthly_rollups");
+    }
+    
+    @AfterEach
+    void tearDown() {
+        ((ProxyDataSource) dataSource).getProxyConfig().getQueryListener().getListeners().remove(captured);
+        cleanUp();
+    }
+    
+    @Test
+    void hotQueriesUseIndexesWithoutFilesort() throws SQLException {
+        Long expenseId = jdbc.queryForObject("SELECT MAX(id) FROM expenses WHERE user_id = ?", Long.class, userId);
+        Long incomeId = jdbc.queryForObject("SELECT MAX(id) FROM incomes WHERE user_id = ?", Long.class, userId);
+        
+        checkListings("expenses", filter -> expenseService.getFilteredExpenses(userId, filter),
+                (filter, cursor) -> expenseService.getExpensePage(userId, filter, cursor, PAGE_SIZE));
+        check("expenses: list by user", () -> expenseService.getAllExpenses(userId));
+        check("expenses: owner-scoped by id", () -> expenseService.getExpenseById(userId, expenseId));
+        
+        checkListings("incomes", filter -> incomeService.getFilteredIncomes(userId, filter),
+                (filter, cursor) -> incomeService.getIncomePage(userId, filter, cursor, PAGE_SIZE));
+        check("incomes: list by user", () -> incomeService.getAllIncomes(userId));
+        check("incomes: owner-scoped by id", () -> incomeService.getIncomeById(userId, incomeId));
+        
+        String timelineCursor = transactionService.getTimeline(userId, null, PAGE_SIZE).getNextCursor();
+        check("timeline: first page", () -> transactionService.getTimeline(userId, null, PAGE_SIZE));
+        check("timeline: keyset page", () -> transactionService.getTimeline(userId, timelineCursor, PAGE_SIZE));
+        
+        check("monthly_rollups: total", () -> monthlyRollupService.getTotal(userId, MonthlyRollup.EXPENSE));
+        check("monthly_rollups: entry count", () -> monthlyRollupService.countTransactions(userId));
+        check("monthly_rollups: report",
+                () -> monthlyRollupService.getReport(userId, YearMonth.of(2024, 1), YearMonth.of(2024, 12)));
+        
+        assertTrue(problems.isEmpty(), "Bad query plans:\n" + String.join("\n", problems));
+    }
+    
+    // Every filter and sort shape the list endpoints accept, plus keyset paging
+    private void checkListings(String table, Function<TransactionFilter, ?> filtered,
+                               BiFunction<TransactionFilter, String, PageResponse<?>> page) throws SQLException {
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 6, 30);
+        
+        Map<String, TransactionFilter> filters = new LinkedHashMap<>();
+        filters.put("no filter", new TransactionFilter());
+        filters.put("date range", TransactionFilter.of(from, to, null));
+        filters.put("open-ended start date", TransactionFilter.of(from, null, null));
+        filters.put("category", TransactionFilter.of(null, null, "Food"));
+        filters.put("category and date range", TransactionFilter.of(from, to, "Food"));
+        TransactionFilter categories = new TransactionFilter();
+        categories.setCategory(List.of("Food", "Rent"));
+        filters.put("several categories", categories);
+        TransactionFilter amounts = new TransactionFilter();
+        amounts.setMinAmount(BigDecimal.valueOf(20));
+        amounts.setMaxAmount(BigDecimal.valueOf(40));
+        filters.put("amount range", amounts);
+        for (String sort : new String[] {"date_asc", "amount_desc", "amount_asc"}) {
+            TransactionFilter sorted = new TransactionFilter();
+            sorted.setSort(sort);
+            filters.put("sorted by " + sort, sorted);
+        }
+        TransactionFilter search = new TransactionFilter();
+        search.setSearch("Row 1");
+        filters.put("text search", search);
+        
+        for (Map.Entry<String, TransactionFilter> filter : filters.entrySet()) {
+            check(table + ": " + filter.getKey(), SORTED_AFTER_READ.contains(filter.getKey()),
+                    () -> filtered.apply(filter.getValue()));
+        }
+        
+        String cursor = page.apply(new TransactionFilter(), null).getNextCursor();
+        check(table + ": first page", () -> page.apply(new TransactionFilter(), null));
+        check(table + ": keyset page", () -> page.apply(new TransactionFilter(), cursor));
+        check(table + ": keyset page in a category", () -> page.apply(TransactionFilter.of(null, null, "Food"), cursor));
+        check(table + ": keyset page in several categories", () -> page.apply(categories, cursor));
+        check(table + ": keyset page in an amount range", () -> page.apply(amounts, cursor));
+    }
+    
+    private void check(String name, Supplier<?> call) throws SQLException {
+        check(name, false, call);
+    }
+    
+    // Runs the call, then EXPLAINs every SELECT it issued with the parameters it bound
+    private void check(String name, boolean filesortAllowed, Supplier<?> call) throws SQLException {
+        List<CapturedQuery> queries = captured.during(call);
+        assertFalse(queries.isEmpty(), name + " issued no SELECT");
+        
+        try (Connection connection = dataSource.getConnection()) {
+            for (CapturedQuery query : queries) {
+                try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + query.sql())) {
+                    for (int i = 0; i < query.parameters().size(); i++) {
+                        explain.setObject(i + 1, query.parameters().get(i));
+                    }
+                    try (ResultSet plan = explain.executeQuery()) {
+                        while (plan.next()) {
+                            // The timeline's outer sort merges the two LIMITed branches (at most 2 * limit rows)
+                            // through a temporary table; only the branches themselves have to use the indexes
+                            String table = plan.getString("table");
+                            if (table != null && (table.startsWith("<derived") || table.startsWith("<union"))) {
+                                continue;
+                            }
+                            String type = plan.getString("type");
+                            String extra = plan.getString("Extra");
+                            if ("ALL".equals(type)) {
+                                problems.add(name + ": full scan of " + table + " in " + query.sql());
+                            }
+                            if (!filesortAllowed && extra != null && extra.contains("Using filesort")) {
+                                problems.add(name + ": filesort on " + table + " in " + query.sql());
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+    
+    private record CapturedQuery(String sql, List<Object> parameters) {
+    }
+    
+    // Records the SELECTs run on the capturing thread while a call is in progress; the scheduled jobs
+    // share the DataSource but run on their own threads
+    private static class CapturingListener implements QueryExecutionListener {
+        
+        private volatile Thread capturing;
+        private final List<CapturedQuery> queries = new ArrayList<>();
+        
+        List<CapturedQuery> during(Supplier<?> call) {
+            queries.clear();
+            capturing = Thread.currentThread();
+            try {
+                call.get();
+            } finally {
+                capturing = null;
+            }
+            return new ArrayList<>(queries);
+        }
+        
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+        
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            if (capturing != Thread.currentThread()) {
+                return;
+            }
+            for (QueryInfo queryInfo : queryInfoList) {
+                if (!queryInfo.getQuery().stripLeading().regionMatches(true, 0, "select", 0, 6)) {
+                    continue;
+                }
+                List<Object> parameters = new ArrayList<>();
+                if (!queryInfo.getParametersList().isEmpty()) {
+                    queryInfo.getParametersList().get(0).stream()
+                            .sorted(Comparator.comparing(op -> (Integer) op.getArgs()[0]))
+                            .forEach(op -> parameters.add(value(op)));
+                }
+                queries.add(new CapturedQuery(queryInfo.getQuery(), parameters));
+            }
+        }
+        
+        private static Object value(ParameterSetOperation op) {
+            return op.getMethod().getName().equals("setNull") ? null : op.getArgs()[1];
+        }
+    }
+    
+    private void seedTransactions(long ownerId) {
+        LocalDate start = LocalDate.of(2023, 1, 1);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS_PER_USER; i++) {
+            rows.add(new Object[] {BigDecimal.valueOf(10 + i % 90), CATEGORIES[i % CATEGORIES.length], "Row " + i,
+                    start.plusDays(i * 3L), ownerId});
+        }
+        jdbc.batchUpdate("INSERT INTO expenses (amount, category, description, date, user_id) VALUES (?, ?, ?, ?, ?)", rows);
+        jdbc.batchUpdate("INSERT INTO incomes (amount, category, source, date, user_id) VALUES (?, ?, ?, ?, ?)", rows);
+    }
+    
+    private static String owners() {
+        return "(SELECT id FROM (SELECT id FROM users WHERE email LIKE '" + EMAIL_PATTERN + "') seeded)";
+    }
+    
+    private void cleanUp() {
+        String owners = owners();
+        jdbc.update("DELETE FROM monthly_rollups WHERE user_id IN " + owners);
+        jdbc.update("DELETE FROM expenses WHERE user_id IN " + owners);
+        jdbc.update("DELETE FROM incomes WHERE user_id IN " + owners);
+        jdbc.update("DELETE FROM users WHERE email LIKE '" + EMAIL_PATTERN + "'");
+    }
+}
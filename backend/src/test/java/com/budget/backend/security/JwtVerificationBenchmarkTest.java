@@ -0,0 +1,82 @@
+package com.budget.backend.security;
+
+import com.budget.backend.config.JwtConfig;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Compares the per-request token work done by JwtAuthenticationFilter before and after
+// the single-pass verifier. Run with: mvn test -Pbenchmark
+@Tag("benchmark")
+class JwtVerificationBenchmarkTest {
+    
+    private static final String SECRET = "6f7qQnVtXk5zZ2d3Jm4sT2xZQ2r8a0hG9wY5rL1nF8vJtB2uN3xD4pV7mK0sE9tL";
+    private static final int TOKENS = 200;
+    private static final int ROUNDS = 50;
+    
+    @Test
+    void filterTokenWork() {
+        JwtConfig config = new JwtConfig();
+        config.setSecret(SECRET);
+        config.setExpiration(3600000);
+        JwtTokenProvider provider = new JwtTokenProvider(config);
+        Key key = Keys.hmacShaKeyFor(SECRET.getBytes());
+        
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < TOKENS; i++) {
+            User user = new User("user" + i + "@example.com", "", Collections.emptyList());
+            tokens.add(provider.generateToken(new UsernamePasswordAuthenticationToken(user, null)));
+        }
+        
+        // Warm up both paths
+        run(() -> legacy(key, tokens));
+        run(() -> singlePass(provider, tokens));
+        
+        long legacyNanos = run(() -> legacy(key, tokens));
+        long singlePassNanos = run(() -> singlePass(provider, tokens));
+        long requests = (long) TOKENS * ROUNDS;
+        
+        System.out.printf("JWT filter work per request: legacy (validate + parse) %d ns, single-pass verify with cache %d ns%n",
+                legacyNanos / requests, singlePassNanos / requests);
+        
+        assertEquals(legacy(key, tokens.subList(0, 1)), singlePass(provider, tokens.subList(0, 1)));
+    }
+    
+    private long run(Runnable body) {
+        long start = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) {
+            body.run();
+        }
+        return System.nanoTime() - start;
+    }
+    
+    // What the filter did before: validateToken() and getUsernameFromToken() each built a parser and verified
+    private String legacy(Key key, List<String> tokens) {
+        String subject = null;
+        for (String token : tokens) {
+            Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+            subject = Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody().getSubject();
+        }
+        return subject;
+    }
+    
+    private String singlePass(JwtTokenProvider provider, List<String> tokens) {
+        String subject = null;
+        for (String token : tokens) {
+            Claims claims = provider.verify(token);
+            subject = claims.getSubject();
+        }
+        return subject;
+    }
+}
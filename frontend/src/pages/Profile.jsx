@@ -146,7 +146,8 @@ const Profile = () => {
       return previewUrl;
     }
     if (user?.profilePhoto) {
-      return `http://localhost:8080/uploads/${user.profilePhoto}`;
+      const photo = user.profilePhotoVariants?.['256'] || user.profilePhoto;
+      return `http://localhost:8080/uploads/${photo}`;
     }
     return 'https://via.placeholder.com/150';
   };